@@ -0,0 +1,331 @@
+import models.ActivityLog;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves closed months of Activity_Log out of the hot DB into archive/activity_YYYY-MM.db (next to the hot DB).
+ * - Daily_Usage stays in the hot DB, so totals never need the archives
+ * - Archived months are recorded in Archived_Months; queryActivityLogs ATTACHes only the months a range covers
+ * - Copy and delete are separate commits; the copy is keyed on log_id, so re-running after a crash is safe
+ */
+public class ActivityArchiver {
+
+    private static final Log log = Log.get("Archiver");
+
+    // -------------------- CONFIGURABLE SETTINGS --------------------
+    private static final String ARCHIVE_DIR = "archive";
+    private static final int HOT_MONTHS = 2; // Current and previous month stay in activity_tracker.db
+    private static final int VACUUM_STEP_PAGES = 2000; // Pages freed per writer lease while compacting
+    private static final int MAX_ATTACHED = 8; // Archives per query (SQLite attaches at most 10 by default)
+
+    static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS Archived_Months (
+                month TEXT PRIMARY KEY,
+                file TEXT NOT NULL,
+                first_day INTEGER NOT NULL,
+                last_day INTEGER NOT NULL,
+                rows INTEGER NOT NULL,
+                archived_at TEXT NOT NULL
+            );
+            """;
+
+    private static final String ARCHIVE_COLUMNS =
+            "log_id, app_id, site_id, start_time, end_time, duration_seconds, start_epoch, day";
+
+    // -------------------- ARCHIVING --------------------
+    public static void startInBackground() {
+        Thread t = new Thread(() -> {
+            try {
+                enableIncrementalVacuum();
+                // Compact first so the archives receive merged sessions
+                SessionCompactor.compactClosedDays();
+                archiveClosedMonths();
+            } catch (Throwable e) {
+                log.error("Maintenance run failed", e);
+            }
+        }, "activity-archiver");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Archive every month older than the hot window. Returns the number of months moved. */
+    public static int archiveClosedMonths() {
+        long cutoffDay = DatabaseHelper.toDay(YearMonth.now().minusMonths(HOT_MONTHS - 1).atDay(1));
+        int archived = 0;
+        try {
+            Long oldest;
+            while ((oldest = oldestDayBefore(cutoffDay)) != null) {
+                archiveMonth(YearMonth.from(LocalDate.ofEpochDay(oldest)));
+                archived++;
+            }
+        } catch (SQLException e) {
+            log.error("Archiving stopped", e);
+        }
+        if (archived > 0) compactHotDatabase();
+        return archived;
+    }
+
+    private static Long oldestDayBefore(long cutoffDay) throws SQLException {
+        try (Connection conn = ConnectionManager.read();
+             PreparedStatement ps = conn.prepareStatement("SELECT MIN(day) FROM Activity_Log WHERE day < ?")) {
+            ps.setLong(1, cutoffDay);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                long day = rs.getLong(1);
+                return rs.wasNull() ? null : day;
+            }
+        }
+    }
+
+    private static void archiveMonth(YearMonth month) throws SQLException {
+        File file = archiveFile(month);
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new SQLException("Cannot create archive directory " + dir.getAbsolutePath());
+        }
+        long firstDay = DatabaseHelper.toDay(month.atDay(1));
+        long lastDay = DatabaseHelper.toDay(month.atEndOfMonth());
+
+        int moved = ConnectionManager.withWriteRetry(conn -> {
+            // ATTACH/DETACH are not allowed inside a transaction
+            try (PreparedStatement attach = conn.prepareStatement("ATTACH DATABASE ? AS arch")) {
+                attach.setString(1, file.getPath());
+                attach.execute();
+            }
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("""
+                            CREATE TABLE IF NOT EXISTS arch.Activity_Log (
+                                log_id INTEGER PRIMARY KEY,
+                                app_id INTEGER,
+                                site_id INTEGER,
+                                start_time TEXT,
+                                end_time TEXT,
+                                duration_seconds INTEGER,
+                                start_epoch INTEGER,
+                                day INTEGER
+                            );
+                            """);
+                    stmt.execute("CREATE INDEX IF NOT EXISTS arch.idx_archive_day ON Activity_Log(day)");
+                }
+                // 1) Copy into the archive and commit it on its own
+                conn.setAutoCommit(false);
+                try (PreparedStatement copy = conn.prepareStatement(
+                        "INSERT OR IGNORE INTO arch.Activity_Log(" + ARCHIVE_COLUMNS + ") " +
+                                "SELECT " + ARCHIVE_COLUMNS + " FROM main.Activity_Log WHERE day BETWEEN ? AND ?")) {
+                    copy.setLong(1, firstDay);
+                    copy.setLong(2, lastDay);
+                    copy.executeUpdate();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+
+                // 2) Drop from the hot DB only what the archive now holds
+                try (PreparedStatement delete = conn.prepareStatement(
+                             "DELETE FROM main.Activity_Log WHERE day BETWEEN ? AND ? " +
+                                     "AND log_id IN (SELECT log_id FROM arch.Activity_Log WHERE day BETWEEN ? AND ?)");
+                     PreparedStatement record = conn.prepareStatement(
+                             "INSERT INTO Archived_Months(month, file, first_day, last_day, rows, archived_at) " +
+                                     "VALUES(?, ?, ?, ?, ?, ?) " +
+                                     "ON CONFLICT(month) DO UPDATE SET rows = rows + excluded.rows, archived_at = excluded.archived_at")) {
+                    delete.setLong(1, firstDay);
+                    delete.setLong(2, lastDay);
+                    delete.setLong(3, firstDay);
+                    delete.setLong(4, lastDay);
+                    int rows = delete.executeUpdate();
+                    record.setString(1, month.toString());
+                    record.setString(2, file.getPath());
+                    record.setLong(3, firstDay);
+                    record.setLong(4, lastDay);
+                    record.setInt(5, rows);
+                    record.setString(6, LocalDateTime.now().toString());
+                    record.executeUpdate();
+                    conn.commit();
+                    return rows;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } finally {
+                conn.setAutoCommit(true);
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("DETACH DATABASE arch");
+                }
+            }
+        });
+        log.info("Archived {} rows of {} to {}", moved, month, file.getPath());
+    }
+
+    // One-time switch to auto_vacuum=INCREMENTAL, so compactHotDatabase can give pages back in small steps.
+    // An existing file only switches after a full VACUUM (about 2.5 s per 1M rows, holding the writer);
+    // it runs here, off the UI thread, and is retried on the next start if another process held the DB
+    private static void enableIncrementalVacuum() {
+        try {
+            try (Connection conn = ConnectionManager.read();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                if (rs.next() && rs.getInt(1) == 2) return;  // 2 = INCREMENTAL
+            }
+            long started = System.nanoTime();
+            try (Connection conn = ConnectionManager.write();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                stmt.execute("VACUUM");
+            }
+            log.info("Switched to incremental auto-vacuum in {} ms", (System.nanoTime() - started) / 1_000_000);
+        } catch (SQLException e) {
+            log.warn("Incremental auto-vacuum not enabled yet: {}", e.getMessage());
+        }
+    }
+
+    // Give the freed pages back to the file system; best effort, archiving already succeeded.
+    // incremental_vacuum (auto_vacuum=INCREMENTAL, see enableIncrementalVacuum) frees a bounded number of pages per
+    // writer lease, so tracking writes get in between instead of waiting for a full VACUUM rewrite
+    private static void compactHotDatabase() {
+        long freed = 0;
+        try {
+            long free;
+            while ((free = freePages()) > 0) {
+                ConnectionManager.withWriteRetry(conn -> {
+                    try (Statement stmt = conn.createStatement()) {
+                        // executeUpdate runs the pragma to completion; execute() would free only one page
+                        return stmt.executeUpdate("PRAGMA incremental_vacuum(" + VACUUM_STEP_PAGES + ")");
+                    }
+                });
+                long left = freePages();
+                if (left >= free) break;  // Not in incremental mode (migration skipped); nothing to gain
+                freed += free - left;
+            }
+            try (Connection conn = ConnectionManager.write();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+            log.info("Hot database compacted ({} pages freed)", freed);
+        } catch (SQLException e) {
+            log.warn("Compaction skipped: {}", e.getMessage());
+        }
+    }
+
+    private static long freePages() throws SQLException {
+        try (Connection conn = ConnectionManager.read();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA freelist_count")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    static File archiveFile(YearMonth month) {
+        File dir = new File(ConnectionManager.databaseFile().getAbsoluteFile().getParentFile(), ARCHIVE_DIR);
+        return new File(dir, "activity_" + month + ".db");
+    }
+
+    // -------------------- READING --------------------
+
+    /**
+     * First day still fully held in the hot DB (everything before it has been archived).
+     * Long.MIN_VALUE when nothing was archived yet.
+     */
+    static long firstHotDay(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(last_day) FROM Archived_Months")) {
+            if (rs.next()) {
+                long last = rs.getLong(1);
+                if (!rs.wasNull()) return last + 1;
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Raw sessions of days [from, to], hot and archived, ordered by start time.
+     * ATTACHes the archives of the months the range covers (read-only, on the reader lease) and
+     * UNIONs them with the hot table; archives missing on disk are skipped with a warning.
+     */
+    public static List<ActivityLog> queryActivityLogs(LocalDate from, LocalDate to) throws SQLException {
+        long fromDay = DatabaseHelper.toDay(from);
+        long toDay = DatabaseHelper.toDay(to);
+        List<ActivityLog> result = new ArrayList<>();
+        try (Connection conn = ConnectionManager.read()) {
+            List<String> files = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT file FROM Archived_Months WHERE last_day >= ? AND first_day <= ? ORDER BY first_day")) {
+                ps.setLong(1, fromDay);
+                ps.setLong(2, toDay);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String file = rs.getString("file");
+                        if (new File(file).isFile()) files.add(file);
+                        else log.warn("Missing archive {}, its rows are skipped", file);
+                    }
+                }
+            }
+            // Archived months precede each other and the hot table, so chunks come back in start order
+            int chunks = Math.max(1, (files.size() + MAX_ATTACHED - 1) / MAX_ATTACHED);
+            for (int c = 0; c < chunks; c++) {
+                List<String> chunk = files.subList(Math.min(files.size(), c * MAX_ATTACHED),
+                        Math.min(files.size(), (c + 1) * MAX_ATTACHED));
+                readUnion(conn, chunk, c == chunks - 1, fromDay, toDay, result);
+            }
+        }
+        return result;
+    }
+
+    // One query over the given archives (attached as arch0, arch1, ...) plus, if withHot, main.Activity_Log.
+    // ATTACH/DETACH are not allowed inside a transaction; reader leases run in autocommit
+    private static void readUnion(Connection conn, List<String> files, boolean withHot,
+                                  long fromDay, long toDay, List<ActivityLog> out) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        int attached = 0;
+        try {
+            for (String file : files) {
+                try (PreparedStatement attach = conn.prepareStatement("ATTACH DATABASE ? AS arch" + attached)) {
+                    attach.setString(1, file);
+                    attach.execute();
+                }
+                tables.add("arch" + attached++ + ".Activity_Log");
+            }
+            if (withHot) tables.add("main.Activity_Log");
+            StringBuilder sql = new StringBuilder();
+            for (String table : tables) {
+                if (sql.length() > 0) sql.append(" UNION ALL ");
+                sql.append("SELECT log_id, app_id, site_id, start_time, end_time, duration_seconds FROM ").append(table)
+                        .append(" WHERE day BETWEEN ? AND ? AND start_time IS NOT NULL AND end_time IS NOT NULL");
+            }
+            sql.append(" ORDER BY start_time");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < tables.size(); i++) {
+                    ps.setLong(2 * i + 1, fromDay);
+                    ps.setLong(2 * i + 2, toDay);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int appId = rs.getInt("app_id");
+                        Integer app = rs.wasNull() ? null : appId;
+                        int siteId = rs.getInt("site_id");
+                        Integer site = rs.wasNull() ? null : siteId;
+                        out.add(new ActivityLog(rs.getInt("log_id"), app, site,
+                                LocalDateTime.parse(rs.getString("start_time")),
+                                LocalDateTime.parse(rs.getString("end_time")),
+                                rs.getInt("duration_seconds")));
+                    }
+                }
+            }
+        } finally {
+            try (Statement stmt = conn.createStatement()) {
+                for (int i = 0; i < attached; i++) stmt.execute("DETACH DATABASE arch" + i);
+            }
+        }
+    }
+}
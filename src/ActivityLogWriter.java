@@ -0,0 +1,195 @@
+import models.ActivityLog;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind queue for Activity_Log rows.
+ * - Trackers enqueue finished sessions and return immediately
+ * - A background thread commits them in one transaction per batch (by size, or once the oldest row
+ *   has been queued for FLUSH_INTERVAL_MS)
+ * - A failed batch is kept and retried every RETRY_DELAY_MS, whether or not new rows arrive
+ * - When the queue is full the enqueuing thread flushes a batch itself (backpressure)
+ * - flush() and shutdown() block until everything queued so far is on disk
+ */
+public class ActivityLogWriter {
+
+    private static final Log log = Log.get("ActivityLogWriter");
+
+    // -------------------- CONFIGURABLE SETTINGS --------------------
+    private static final int QUEUE_CAPACITY = 2048;
+    private static final int BATCH_SIZE = 50;                 // Commit once this many rows are waiting
+    private static final long FLUSH_INTERVAL_MS = 30_000;     // ...or once the oldest row was queued this long ago
+    private static final long RETRY_DELAY_MS = 5_000;         // Pause after a failed batch before trying again
+
+    // -------------------- STATE --------------------
+    private static final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // Rows taken off the queue but not committed yet (kept for retry on failure), oldest first; guarded by flushLock
+    private static final List<Pending> inFlight = new ArrayList<>(BATCH_SIZE);
+    private static final Object flushLock = new Object();
+    private static Thread worker;
+    private static volatile boolean running = false;
+
+    // -------------------- METRICS --------------------
+    private static final AtomicLong rowsWritten = new AtomicLong();
+    private static final AtomicLong batchesCommitted = new AtomicLong();
+    private static final AtomicLong callerFlushes = new AtomicLong();
+    private static final AtomicLong failedBatches = new AtomicLong();
+    private static final AtomicLong droppedRows = new AtomicLong();
+
+    // -------------------- PUBLIC METHODS --------------------
+
+    /** Queue one finished session. Never touches the database unless the queue is full. */
+    public static void enqueue(Integer appId, Integer siteId, LocalDateTime start, LocalDateTime end, int duration) {
+        ensureStarted();
+        Pending row = new Pending(new ActivityLog(0, appId, siteId, start, end, duration), System.nanoTime());
+        if (queue.offer(row)) return;
+        // Backpressure: the writer thread can't keep up (slow disk / locked DB) — help it out
+        callerFlushes.incrementAndGet();
+        flushBatch();
+        if (!queue.offer(row)) {
+            droppedRows.incrementAndGet();
+            log.error("Queue full and DB unavailable, dropping session: {} → {}", start, end);
+        }
+    }
+
+    /** Commit everything queued so far. Blocks until done or until a batch fails. */
+    public static void flush() {
+        do {
+            if (!flushBatch()) return;
+        } while (!queue.isEmpty() || inFlightSize() > 0);
+    }
+
+    /** Stop the background thread and drain the queue. */
+    public static synchronized void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+        }
+        flush();
+        log.info("Stopped. {}", stats());
+    }
+
+    public static String stats() {
+        return "rowsWritten=" + rowsWritten.get() +
+                ", batches=" + batchesCommitted.get() +
+                ", callerFlushes=" + callerFlushes.get() +
+                ", failedBatches=" + failedBatches.get() +
+                ", droppedRows=" + droppedRows.get() +
+                ", queued=" + queue.size();
+    }
+
+    // -------------------- BACKGROUND WRITER --------------------
+    private static synchronized void ensureStarted() {
+        if (running) return;
+        running = true;
+        worker = new Thread(ActivityLogWriter::runLoop, "activity-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private static void runLoop() {
+        while (running) {
+            try {
+                // Rows left over from a failed batch count as waiting; otherwise wait for the next row
+                long oldest = oldestQueuedNanos();
+                if (oldest == NONE) {
+                    if (!waitForRow()) continue;
+                    oldest = oldestQueuedNanos();
+                    if (oldest == NONE) continue;  // A caller flush already wrote it
+                }
+                // Keep collecting until the batch is full or its oldest row has waited long enough
+                long deadline = oldest + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+                while (running && queue.size() + inFlightSize() < BATCH_SIZE) {
+                    long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (left <= 0) break;
+                    Thread.sleep(Math.min(left, 1000));
+                }
+                if (!flushBatch()) Thread.sleep(RETRY_DELAY_MS);
+            } catch (InterruptedException e) {
+                // shutdown() interrupts us; it drains the queue itself
+                return;
+            } catch (Throwable t) {
+                // Never allow the writer thread to die
+                log.error("Error in writer loop", t);
+            }
+        }
+    }
+
+    private static int inFlightSize() {
+        synchronized (flushLock) {
+            return inFlight.size();
+        }
+    }
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    // Enqueue time of the oldest row not written yet, or NONE
+    private static long oldestQueuedNanos() {
+        synchronized (flushLock) {
+            if (!inFlight.isEmpty()) return inFlight.get(0).queuedAtNanos;
+            Pending head = queue.peek();
+            return head != null ? head.queuedAtNanos : NONE;
+        }
+    }
+
+    // Block until a row is queued, or give up after FLUSH_INTERVAL_MS. The row becomes the head of the batch
+    private static boolean waitForRow() throws InterruptedException {
+        Pending first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) return false;
+        synchronized (flushLock) {
+            inFlight.add(first);  // Usually empty here; commits take at most BATCH_SIZE rows either way
+        }
+        return true;
+    }
+
+    // -------------------- BATCH COMMIT --------------------
+    private static boolean flushBatch() {
+        synchronized (flushLock) {
+            queue.drainTo(inFlight, Math.max(0, BATCH_SIZE - inFlight.size()));
+            return inFlight.isEmpty() || commitInFlight();
+        }
+    }
+
+    // Caller holds flushLock. Commits the oldest BATCH_SIZE rows at most
+    private static boolean commitInFlight() {
+        List<Pending> batch = inFlight.subList(0, Math.min(inFlight.size(), BATCH_SIZE));
+        List<ActivityLog> rows = new ArrayList<>(batch.size());
+        for (Pending p : batch) rows.add(p.row);
+        try {
+            DatabaseHelper.insertActivityLogBatch(rows);
+            rowsWritten.addAndGet(rows.size());
+            batchesCommitted.incrementAndGet();
+            batch.clear();
+            return true;
+        } catch (SQLException e) {
+            // Keep the rows for the next attempt; the DB may just be locked by another process
+            failedBatches.incrementAndGet();
+            log.warn("Batch of {} rows failed, will retry: {}", rows.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /** A queued row and when it was queued (System.nanoTime()), so the flush deadline counts from enqueue. */
+    private static final class Pending {
+        final ActivityLog row;
+        final long queuedAtNanos;
+
+        Pending(ActivityLog row, long queuedAtNanos) {
+            this.row = row;
+            this.queuedAtNanos = queuedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Poll delay policy for the tracking loop.
+ * - While the foreground is unsettled (a possible switch is being confirmed) poll at minMillis
+ * - While it is stable, double the delay each poll up to maxMillis
+ * minMillis == maxMillis gives a fixed rate.
+ */
+public class AdaptivePollInterval {
+
+    private final long minMillis;
+    private final long maxMillis;
+    private long current;
+
+    public AdaptivePollInterval(long minMillis, long maxMillis) {
+        if (minMillis <= 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("Need 0 < min <= max, got " + minMillis + ".." + maxMillis);
+        }
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.current = minMillis;
+    }
+
+    /** Delay before the next poll, given whether this poll saw the foreground unsettled. */
+    public long next(boolean unsettled) {
+        current = unsettled ? minMillis : Math.min(maxMillis, current * 2);
+        return current;
+    }
+
+    public long minMillis() {
+        return minMillis;
+    }
+
+    public long maxMillis() {
+        return maxMillis;
+    }
+}
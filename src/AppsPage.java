@@ -4,9 +4,6 @@ import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.ComboBoxTableCell;
 import javafx.scene.layout.VBox;
-import javafx.util.Pair;
-import java.util.List;
-import java.util.Map;
 import javafx.scene.control.Label;
 
 
@@ -48,22 +45,9 @@ public class AppsPage extends VBox {
 
     public void refresh() {
         data.clear();
-        List<Map.Entry<Integer, Pair<String,Integer>>> rows = DatabaseHelper.queryAppsWithTodaySeconds();
-        for (Map.Entry<Integer, Pair<String,Integer>> e : rows) {
-            int id = e.getKey();
-            String name = e.getValue().getKey();
-            int seconds = e.getValue().getValue();
-            String label = "Unknown";
-            try (var conn = DatabaseHelper.getConnection();
-                 var ps = conn.prepareStatement("SELECT category_id FROM Applications WHERE app_id = ?")) {
-                ps.setInt(1, id);
-                var rs = ps.executeQuery();
-                if (rs.next()) {
-                    int catId = rs.getInt("category_id");
-                    label = (catId == 1) ? "Productive" : (catId == 2) ? "Distracting" : "Unknown";
-                }
-            } catch (Exception ex) { /* ignore */ }
-            data.add(new AppRow(id, name, seconds, label));
+        for (UsageAggregator.EntityTotal t : TodayUsage.current().apps) {
+            String label = (t.categoryId == 1) ? "Productive" : (t.categoryId == 2) ? "Distracting" : "Unknown";
+            data.add(new AppRow(t.id, t.name, t.seconds, label));
         }
         table.setItems(data);
     }
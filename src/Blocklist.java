@@ -0,0 +1,143 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory copy of BlockedApps / BlockedWebsites for Focus Mode checks.
+ * - Readers get an immutable Snapshot; lookups are hash/trie walks with no SQL
+ * - block/unblock methods in DatabaseHelper call reload(), which swaps in a new snapshot atomically
+ * - Changes written by another process are picked up via DataVersionWatcher
+ */
+public class Blocklist {
+
+    private static final Log log = Log.get("Blocklist");
+
+    private static final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private static final AtomicLong versions = new AtomicLong();
+
+    static {
+        DataVersionWatcher.addListener(Blocklist::reload);
+    }
+
+    /** The current snapshot; loads one on first use. */
+    public static Snapshot current() {
+        Snapshot snap = current.get();
+        if (snap == null) snap = reload();
+        return snap;
+    }
+
+    public static boolean isAppBlocked(String appName) {
+        return current().isAppBlocked(appName);
+    }
+
+    public static boolean isSiteBlocked(String urlOrHost) {
+        return current().isSiteBlocked(urlOrHost);
+    }
+
+    /**
+     * Re-read the blocked tables and publish a new snapshot. Keeps the old one on error.
+     * Synchronized: the FX thread (after a block) and DataVersionWatcher both reload, and a read taken
+     * before a commit must not be published after the one taken after it.
+     */
+    public static synchronized Snapshot reload() {
+        Set<String> appNames = new HashSet<>();
+        Set<Integer> appIds = new HashSet<>();
+        List<String> siteHosts = new ArrayList<>();
+        Set<Integer> siteIds = new HashSet<>();
+        try (Connection conn = ConnectionManager.read();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT A.app_id, A.name FROM BlockedApps BA JOIN Applications A ON BA.app_id = A.app_id")) {
+                while (rs.next()) {
+                    appIds.add(rs.getInt("app_id"));
+                    appNames.add(rs.getString("name"));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT W.site_id, W.url FROM BlockedWebsites BW JOIN Websites W ON BW.site_id = W.site_id")) {
+                while (rs.next()) {
+                    siteIds.add(rs.getInt("site_id"));
+                    siteHosts.add(hostOf(rs.getString("url")));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Reload failed, keeping the previous blocklist", e);
+            Snapshot old = current.get();
+            if (old != null) return old;
+        }
+        Snapshot snap = new Snapshot(versions.incrementAndGet(), appNames, appIds, new DomainTrie(siteHosts), siteIds);
+        current.set(snap);
+        return snap;
+    }
+
+    // Host part of "scheme://www.host:port/path?query", without "www."
+    static String hostOf(String url) {
+        int start = url.indexOf("://");
+        start = start >= 0 ? start + 3 : 0;
+        int end = hostEnd(url, start);
+        String host = url.substring(start, end);
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    static int hostEnd(String url, int start) {
+        for (int i = start; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == ':' || c == '?' || c == '#') return i;
+        }
+        return url.length();
+    }
+
+    /** Immutable view of what is blocked. */
+    public static final class Snapshot {
+        public final long version;
+        private final Set<String> appNames;
+        private final Set<Integer> appIds;
+        private final DomainTrie sites;
+        private final Set<Integer> siteIds;
+
+        Snapshot(long version, Set<String> appNames, Set<Integer> appIds, DomainTrie sites, Set<Integer> siteIds) {
+            this.version = version;
+            this.appNames = Collections.unmodifiableSet(appNames);
+            this.appIds = Collections.unmodifiableSet(appIds);
+            this.sites = sites;
+            this.siteIds = Collections.unmodifiableSet(siteIds);
+        }
+
+        /** Exact match on the stored (normalized) application name. */
+        public boolean isAppBlocked(String appName) {
+            return appName != null && appNames.contains(appName);
+        }
+
+        public boolean isAppBlocked(int appId) {
+            return appIds.contains(appId);
+        }
+
+        /** Host or URL; a blocked domain also blocks its subdomains. */
+        public boolean isSiteBlocked(String urlOrHost) {
+            if (urlOrHost == null || sites.size() == 0) return false;
+            int start = urlOrHost.indexOf("://");
+            start = start >= 0 ? start + 3 : 0;
+            return sites.matches(urlOrHost, start, hostEnd(urlOrHost, start));
+        }
+
+        public boolean isSiteBlocked(int siteId) {
+            return siteIds.contains(siteId);
+        }
+
+        public boolean hasBlockedItems() {
+            return !appIds.isEmpty() || !siteIds.isEmpty();
+        }
+
+        public Set<String> blockedAppNames() {
+            return appNames;
+        }
+    }
+}
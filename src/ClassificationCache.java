@@ -0,0 +1,143 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classifier stage that remembers results per (exe, title) in front of another classifier.
+ * - An unchanged foreground (the probe hands back the same snapshot) costs one reference compare
+ * - Other repeats cost one hash lookup; only new windows run rules, domain extraction and normalization
+ * - Bounded LRU by entry count and by total key characters, so very long titles can't bloat it
+ * - Cleared when ClassificationRules or the domain depth setting change
+ */
+public class ClassificationCache implements TrackingEngine.Classifier {
+
+    // -------------------- CONFIGURABLE SETTINGS --------------------
+    private static final int DEFAULT_MAX_ENTRIES = 1024;
+    private static final int DEFAULT_MAX_CHARS = 256 * 1024;  // Sum of exe + title lengths
+
+    // Bumped by rule/setting listeners; each cache clears itself on its next lookup
+    private static final AtomicLong generation = new AtomicLong();
+
+    static {
+        ClassificationRules.addListener(ClassificationCache::invalidateAll);
+        SettingsStore.addListener((key, value) -> {
+            if (WebsiteTracker.DOMAIN_DEPTH_KEY.equals(key)) invalidateAll();
+        });
+    }
+
+    private final TrackingEngine.Classifier delegate;
+    private final int maxEntries;
+    private final int maxChars;
+    private final LinkedHashMap<Key, TrackingEngine.Classification> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long seenGeneration = generation.get();
+    private int chars;
+
+    // Last lookup, for the unchanged-foreground fast path
+    private ForegroundSnapshot lastSnapshot;
+    private TrackingEngine.Classification lastResult;
+
+    // -------------------- METRICS --------------------
+    private long sameSnapshotHits;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public ClassificationCache(TrackingEngine.Classifier delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_CHARS);
+    }
+
+    public ClassificationCache(TrackingEngine.Classifier delegate, int maxEntries, int maxChars) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+    }
+
+    /** Drop every cached result in every cache (rules or categories changed). */
+    public static void invalidateAll() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public synchronized TrackingEngine.Classification classify(ForegroundSnapshot fg) {
+        long gen = generation.get();
+        if (gen != seenGeneration) {
+            seenGeneration = gen;
+            clear();
+        } else if (fg == lastSnapshot && lastResult != null) {
+            sameSnapshotHits++;
+            return lastResult;
+        }
+
+        Key key = new Key(fg.exe, fg.title);
+        TrackingEngine.Classification result = entries.get(key);
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+            result = delegate.classify(fg);
+            entries.put(key, result);
+            chars += key.chars();
+            evict();
+        }
+        lastSnapshot = fg;
+        lastResult = result;
+        return result;
+    }
+
+    private void evict() {
+        Iterator<Key> it = entries.keySet().iterator();
+        while ((entries.size() > maxEntries || chars > maxChars) && it.hasNext()) {
+            chars -= it.next().chars();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private void clear() {
+        if (!entries.isEmpty() || lastSnapshot != null) invalidations++;
+        entries.clear();
+        chars = 0;
+        lastSnapshot = null;
+        lastResult = null;
+    }
+
+    public synchronized String stats() {
+        long lookups = sameSnapshotHits + hits + misses;
+        double hitRate = lookups == 0 ? 0 : 100.0 * (sameSnapshotHits + hits) / lookups;
+        return String.format("classifyCache{size=%d, chars=%d, sameSnapshot=%d, hits=%d, misses=%d, hitRate=%.1f%%, "
+                        + "evictions=%d, invalidations=%d}",
+                entries.size(), chars, sameSnapshotHits, hits, misses, hitRate, evictions, invalidations);
+    }
+
+    /** (exe, title) with the hash computed once. */
+    private static final class Key {
+        final String exe;
+        final String title;
+        final int hash;
+
+        Key(String exe, String title) {
+            this.exe = exe;
+            this.title = title;
+            this.hash = 31 * (exe == null ? 0 : exe.hashCode()) + (title == null ? 0 : title.hashCode());
+        }
+
+        int chars() {
+            return (exe == null ? 0 : exe.length()) + (title == null ? 0 : title.length());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return hash == k.hash && (exe == null ? k.exe == null : exe.equals(k.exe))
+                    && (title == null ? k.title == null : title.equals(k.title));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Data-driven app/site classification, read from classification_rules.txt (format documented in the bundled copy).
+ * - The file is compiled into an immutable Snapshot: exact exe hash, then substring automatons, then regexes
+ * - A watcher thread checks the file's timestamp and swaps in a new snapshot atomically when it changes;
+ *   a file that fails to parse keeps the previous snapshot
+ * - Readers never lock: current() is one volatile read
+ */
+public class ClassificationRules {
+
+    private static final Log log = Log.get("ClassificationRules");
+
+    // -------------------- CONFIGURABLE SETTINGS --------------------
+    static final String RULES_FILE = "classification_rules.txt";          // In the working directory, next to the DB
+    private static final String DEFAULT_RESOURCE = "/classification_rules.txt";
+    private static final int CHECK_INTERVAL_SECONDS = 2;
+
+    private static final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private static final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService watcher;
+    private static ScheduledFuture<?> task;
+    private static long lastModified = -1;
+    private static long lastSize = -1;
+
+    /** The current rules; loads them on first use. */
+    public static Snapshot current() {
+        Snapshot snap = current.get();
+        if (snap == null) {
+            synchronized (ClassificationRules.class) {
+                snap = current.get();
+                if (snap == null) snap = reload();
+            }
+        }
+        return snap;
+    }
+
+    /** Called on the thread that swapped in a new snapshot. */
+    public static void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /** Re-read the rules file (creating it from the bundled defaults if missing) and publish it. */
+    public static synchronized Snapshot reload() {
+        Path file = Paths.get(RULES_FILE);
+        Snapshot old = current.get();
+        try {
+            if (!Files.exists(file)) writeDefaults(file);
+            // Remember the version we tried even if it fails to parse, so a broken file is reported once
+            lastModified = Files.getLastModifiedTime(file).toMillis();
+            lastSize = Files.size(file);
+            Snapshot snap;
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                snap = parse(reader, old == null ? 1 : old.version + 1);
+            }
+            publish(snap);
+            log.info("Loaded {} rules from {}", snap.size, file.toAbsolutePath());
+            return snap;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Could not load {}: {}", file.toAbsolutePath(), e.getMessage());
+            if (old != null) return old;
+        }
+        // No usable file and nothing loaded yet: fall back to the bundled defaults
+        try (InputStream in = ClassificationRules.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            Snapshot snap = in == null ? parse(Reader.nullReader(), 1)
+                    : parse(new InputStreamReader(in, StandardCharsets.UTF_8), 1);
+            publish(snap);
+            return snap;
+        } catch (IOException e) {
+            log.error("Reading the bundled rules failed", e);
+            Snapshot empty = new Snapshot(1, new HashMap<>(), new LinkedHashMap<>(), new LinkedHashMap<>(),
+                    new ArrayList<>(), new HashMap<>(), 0);
+            publish(empty);
+            return empty;
+        }
+    }
+
+    private static void publish(Snapshot snap) {
+        current.set(snap);
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (Throwable t) {
+                log.error("Rules listener failed", t);
+            }
+        }
+    }
+
+    private static void writeDefaults(Path file) throws IOException {
+        try (InputStream in = ClassificationRules.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) throw new IOException("bundled " + DEFAULT_RESOURCE + " is missing");
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // -------------------- FILE WATCHER --------------------
+    public static synchronized void startWatching() {
+        if (task != null) return;
+        current();
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rules-watcher");
+            t.setDaemon(true);
+            return t;
+        });
+        task = watcher.scheduleWithFixedDelay(ClassificationRules::checkFile,
+                CHECK_INTERVAL_SECONDS, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopWatching() {
+        if (task != null) task.cancel(false);
+        task = null;
+        if (watcher != null) watcher.shutdownNow();
+        watcher = null;
+    }
+
+    private static void checkFile() {
+        try {
+            Path file = Paths.get(RULES_FILE);
+            if (!Files.exists(file)) return; // Deleted: keep the rules we have
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            long size = Files.size(file);
+            if (modified != lastModified || size != lastSize) reload();
+        } catch (Throwable t) {
+            // Never allow the watcher thread to die
+            log.error("Rules file check failed", t);
+        }
+    }
+
+    // -------------------- PARSING --------------------
+    /** Compile rules text into a snapshot. Throws IllegalArgumentException naming the first bad line. */
+    static Snapshot parse(Reader source, long version) throws IOException {
+        Map<String, Match> exactExe = new HashMap<>();
+        Map<String, Match> exeContains = new LinkedHashMap<>();
+        Map<String, Match> titleContains = new LinkedHashMap<>();
+        List<RegexRule> regexes = new ArrayList<>();
+        Map<String, Match> domains = new HashMap<>();
+        int count = 0;
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+            String[] parts = trimmed.split("\\|", -1);
+            if (parts.length != 4) throw new IllegalArgumentException("line " + lineNo + ": expected 4 fields separated by |");
+            String kind = parts[0].trim().toLowerCase(Locale.ROOT);
+            String pattern = parts[1].trim();
+            String name = parts[2].trim();
+            int category;
+            try {
+                category = Integer.parseInt(parts[3].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("line " + lineNo + ": category must be a number");
+            }
+            if (pattern.isEmpty()) throw new IllegalArgumentException("line " + lineNo + ": empty pattern");
+            Match match = new Match(name.isEmpty() || "-".equals(name) ? null : name, category);
+            String key = pattern.toLowerCase(Locale.ROOT);
+            // Earlier lines win within a kind, like the hand-written chains they replace
+            switch (kind) {
+                case "exe":
+                    exactExe.putIfAbsent(key, match);
+                    break;
+                case "exe-contains":
+                    exeContains.putIfAbsent(key, match);
+                    break;
+                case "title-contains":
+                    titleContains.putIfAbsent(key, match);
+                    break;
+                case "glob":
+                    if (key.indexOf('*') < 0 && key.indexOf('?') < 0) {
+                        exactExe.putIfAbsent(key, match);
+                    } else if (isContainsGlob(key)) {
+                        exeContains.putIfAbsent(key.substring(1, key.length() - 1), match);
+                    } else {
+                        regexes.add(new RegexRule(false, Pattern.compile(globToRegex(key)), match));
+                    }
+                    break;
+                case "title-regex":
+                    try {
+                        regexes.add(new RegexRule(true, Pattern.compile(pattern, Pattern.CASE_INSENSITIVE), match));
+                    } catch (PatternSyntaxException e) {
+                        throw new IllegalArgumentException("line " + lineNo + ": " + e.getDescription());
+                    }
+                    break;
+                case "domain":
+                    domains.putIfAbsent(key.startsWith("www.") ? key.substring(4) : key, match);
+                    break;
+                default:
+                    throw new IllegalArgumentException("line " + lineNo + ": unknown kind '" + kind + "'");
+            }
+            count++;
+        }
+        return new Snapshot(version, exactExe, exeContains, titleContains, regexes, domains, count);
+    }
+
+    // "*foo*" with no other wildcards
+    private static boolean isContainsGlob(String glob) {
+        if (glob.length() < 3 || glob.charAt(0) != '*' || glob.charAt(glob.length() - 1) != '*') return false;
+        String inner = glob.substring(1, glob.length() - 1);
+        return inner.indexOf('*') < 0 && inner.indexOf('?') < 0;
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder("^");
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c != '*' && c != '?') continue;
+            if (i > literalStart) sb.append(Pattern.quote(glob.substring(literalStart, i)));
+            sb.append(c == '*' ? ".*" : ".");
+            literalStart = i + 1;
+        }
+        if (literalStart < glob.length()) sb.append(Pattern.quote(glob.substring(literalStart)));
+        return sb.append('$').toString();
+    }
+
+    // -------------------- RESULT --------------------
+    /** What a rule says about a window or site. appName is null for domain rules. */
+    public static final class Match {
+        public final String appName;
+        public final int category;
+
+        Match(String appName, int category) {
+            this.appName = appName;
+            this.category = category;
+        }
+    }
+
+    private static final class RegexRule {
+        final boolean onTitle;   // Otherwise on the lower-cased exe name
+        final Pattern pattern;
+        final Match match;
+
+        RegexRule(boolean onTitle, Pattern pattern, Match match) {
+            this.onTitle = onTitle;
+            this.pattern = pattern;
+            this.match = match;
+        }
+    }
+
+    // -------------------- COMPILED RULES --------------------
+    /** Immutable compiled rule set. */
+    public static final class Snapshot {
+        public final long version;
+        public final int size;
+        private final Map<String, Match> exactExe;
+        private final KeywordMatcher<Match> exeContains;
+        private final KeywordMatcher<Match> titleContains;
+        private final RegexRule[] regexes;
+        private final Map<String, Match> domains;
+
+        Snapshot(long version, Map<String, Match> exactExe, Map<String, Match> exeContains,
+                 Map<String, Match> titleContains, List<RegexRule> regexes, Map<String, Match> domains, int size) {
+            this.version = version;
+            this.size = size;
+            this.exactExe = exactExe;
+            this.exeContains = new KeywordMatcher<>(exeContains);
+            this.titleContains = new KeywordMatcher<>(titleContains);
+            this.regexes = regexes.toArray(new RegexRule[0]);
+            this.domains = domains;
+        }
+
+        /** Rule for a window: exact exe, then exe substring, then title substring, then regexes. Null if none. */
+        public Match resolveApp(String exe, String title) {
+            String lowerExe = exe != null ? exe.toLowerCase(Locale.ROOT) : null;
+            if (lowerExe != null) {
+                Match m = exactExe.get(lowerExe);
+                if (m != null) return m;
+                m = exeContains.longest(lowerExe);
+                if (m != null) return m;
+            }
+            if (title != null) {
+                Match m = titleContains.longest(title);
+                if (m != null) return m;
+            }
+            for (RegexRule rule : regexes) {
+                String subject = rule.onTitle ? title : lowerExe;
+                if (subject != null && rule.pattern.matcher(subject).find()) return rule.match;
+            }
+            return null;
+        }
+
+        /** Rule for a (normalized) domain or the closest parent domain that has one. Null if none. */
+        public Match resolveSite(String domain) {
+            if (domain == null || domains.isEmpty()) return null;
+            String host = domain;
+            while (true) {
+                Match m = domains.get(host);
+                if (m != null) return m;
+                int dot = host.indexOf('.');
+                if (dot < 0 || host.indexOf('.', dot + 1) < 0) return null; // Never match a bare TLD
+                host = host.substring(dot + 1);
+            }
+        }
+    }
+}
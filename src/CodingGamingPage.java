@@ -10,6 +10,8 @@ import java.util.List;
 import java.util.concurrent.*;
 
 public class CodingGamingPage extends VBox {
+    private static final Log log = Log.get("CodingGaming");
+
     private final LineChart<String, Number> lineChart;
     private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor();
 
@@ -40,7 +42,7 @@ public class CodingGamingPage extends VBox {
                 lineChart.getData().clear();
                 lineChart.getData().addAll(sCoding, sGaming);
             });
-        } catch (Throwable t) { t.printStackTrace(); }
+        } catch (Throwable t) { log.error("Coding/gaming chart refresh failed", t); }
     }
 
     public void stop() { refresher.shutdownNow(); }
@@ -0,0 +1,311 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-lived SQLite connections shared by the whole process.
+ * - One dedicated writer connection, handed out to one thread at a time
+ * - A small bounded pool of read-only connections for queries
+ * - Leases are plain java.sql.Connection objects: close() returns them instead of closing
+ * - SQLITE_BUSY from other processes is absorbed by busy_timeout and retried by withWriteRetry
+ * - The database file is activity_tracker.db in the working directory unless -Dtracker.db=<path> says otherwise
+ */
+public class ConnectionManager {
+
+    private static final Log log = Log.get("ConnectionManager");
+
+    // -------------------- CONFIGURABLE SETTINGS --------------------
+    public static final String DB_PATH_PROPERTY = "tracker.db";
+    private static final String DEFAULT_DB_PATH = "activity_tracker.db";
+    private static final int READ_POOL_SIZE = 4;
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final long BORROW_TIMEOUT_MS = 10_000;
+    private static final int MAX_BUSY_RETRIES = 5;
+
+    // SQLite primary result codes (sqlite-jdbc reports them as the vendor error code)
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    // sqlite3_open_v2 flag for read-only connections
+    private static final String SQLITE_OPEN_READONLY = "1";
+
+    // -------------------- POOL STATE --------------------
+    private static final ReentrantLock writerLock = new ReentrantLock(true);
+    private static Connection writer;
+    private static final BlockingQueue<Connection> idleReaders = new ArrayBlockingQueue<>(READ_POOL_SIZE);
+    private static final List<Connection> allReaders = new ArrayList<>();
+    private static volatile boolean closed = false;
+
+    // -------------------- METRICS --------------------
+    private static final AtomicLong writerLeases = new AtomicLong();
+    private static final AtomicLong writerWaitNanos = new AtomicLong();
+    private static final AtomicLong readerLeases = new AtomicLong();
+    private static final AtomicLong readerWaitNanos = new AtomicLong();
+    private static final AtomicLong busyRetries = new AtomicLong();
+    private static final AtomicInteger readersInUse = new AtomicInteger();
+
+    /** Unit of work that runs against a leased connection. */
+    public interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    // -------------------- LEASES --------------------
+
+    /**
+     * Lease the single writer connection. Blocks while another thread holds it.
+     * The caller must close() the returned connection to release the lease.
+     * Not re-entrant: every writer owns its transaction (setAutoCommit(false) … commit()), so a nested
+     * lease would commit or roll back the outer caller's work. Pass the leased connection down instead.
+     */
+    public static Connection write() throws SQLException {
+        long waitStart = System.nanoTime();
+        writerLock.lock();
+        writerWaitNanos.addAndGet(System.nanoTime() - waitStart);
+        try {
+            if (writerLock.getHoldCount() > 1) {
+                throw new IllegalStateException("Nested writer lease on " + Thread.currentThread().getName()
+                        + "; pass the outer connection down instead");
+            }
+            if (closed) throw new SQLException("ConnectionManager is shut down");
+            if (writer == null || writer.isClosed()) {
+                writer = open(false);
+            }
+            writerLeases.incrementAndGet();
+            return lease(writer, false);
+        } catch (SQLException | RuntimeException e) {
+            writerLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Lease a read-only connection from the pool, opening one if the pool is not full yet.
+     * The caller must close() the returned connection to give it back.
+     */
+    public static Connection read() throws SQLException {
+        if (closed) throw new SQLException("ConnectionManager is shut down");
+        long waitStart = System.nanoTime();
+        Connection conn = idleReaders.poll();
+        if (conn == null) {
+            synchronized (allReaders) {
+                if (allReaders.size() < READ_POOL_SIZE) {
+                    conn = open(true);
+                    allReaders.add(conn);
+                }
+            }
+        }
+        if (conn == null) {
+            try {
+                conn = idleReaders.poll(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a read connection", e);
+            }
+            if (conn == null) throw new SQLException("Timed out waiting for a read connection");
+        }
+        readerWaitNanos.addAndGet(System.nanoTime() - waitStart);
+        readerLeases.incrementAndGet();
+        readersInUse.incrementAndGet();
+        return lease(conn, true);
+    }
+
+    /**
+     * Run a write on the writer connection, retrying with backoff when another
+     * process holds the database lock longer than busy_timeout.
+     */
+    public static <T> T withWriteRetry(SqlWork<T> work) throws SQLException {
+        int attempt = 0;
+        while (true) {
+            try (Connection conn = write()) {
+                return work.run(conn);
+            } catch (SQLException e) {
+                if (!isBusy(e) || ++attempt > MAX_BUSY_RETRIES) throw e;
+                busyRetries.incrementAndGet();
+                try {
+                    Thread.sleep(50L << attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public static boolean isBusy(SQLException e) {
+        int code = e.getErrorCode() & 0xFF;
+        if (code == SQLITE_BUSY || code == SQLITE_LOCKED) return true;
+        String msg = e.getMessage();
+        return msg != null && (msg.contains("SQLITE_BUSY") || msg.contains("SQLITE_LOCKED"));
+    }
+
+    // -------------------- DATABASE FILE --------------------
+
+    /** The database every lease opens: -Dtracker.db, or activity_tracker.db in the working directory. */
+    public static File databaseFile() {
+        return new File(System.getProperty(DB_PATH_PROPERTY, DEFAULT_DB_PATH));
+    }
+
+    /**
+     * For benchmarks: point the process at a new database in a temp directory, unless -Dtracker.db was given.
+     * Must run before the first lease. Returns the file in use.
+     */
+    static File useScratchDatabase(String prefix) throws IOException {
+        if (System.getProperty(DB_PATH_PROPERTY) == null) {
+            File dir = Files.createTempDirectory(prefix).toFile();
+            System.setProperty(DB_PATH_PROPERTY, new File(dir, DEFAULT_DB_PATH).getPath());
+        }
+        return databaseFile();
+    }
+
+    // -------------------- LIFECYCLE --------------------
+
+    /** Close every pooled connection. Leases taken afterwards fail fast. */
+    public static void shutdown() {
+        closed = true;
+        writerLock.lock();
+        try {
+            closeQuietly(writer);
+            writer = null;
+        } finally {
+            writerLock.unlock();
+        }
+        synchronized (allReaders) {
+            for (Connection c : allReaders) closeQuietly(c);
+            allReaders.clear();
+            idleReaders.clear();
+        }
+        log.info("Closed. {}", stats());
+    }
+
+    public static PoolStats stats() {
+        int open;
+        synchronized (allReaders) {
+            open = allReaders.size();
+        }
+        return new PoolStats(writerLeases.get(), writerWaitNanos.get(),
+                readerLeases.get(), readerWaitNanos.get(),
+                open, readersInUse.get(), busyRetries.get());
+    }
+
+    // -------------------- INTERNALS --------------------
+    private static Connection open(boolean readOnly) throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("busy_timeout", String.valueOf(BUSY_TIMEOUT_MS));
+        if (readOnly) {
+            props.setProperty("open_mode", SQLITE_OPEN_READONLY);
+        } else {
+            props.setProperty("journal_mode", "WAL");
+            props.setProperty("synchronous", "NORMAL");
+        }
+        return DriverManager.getConnection("jdbc:sqlite:" + databaseFile().getPath(), props);
+    }
+
+    private static Connection lease(Connection target, boolean reader) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean released = false;
+
+            @Override
+            public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        release();
+                        return null;
+                    case "isClosed":
+                        return released || target.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return (reader ? "ReadLease" : "WriteLease") + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                    default:
+                        if (released) throw new SQLException("Connection lease already released");
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+
+            private void release() {
+                if (released) return;
+                released = true;
+                if (reader) {
+                    readersInUse.decrementAndGet();
+                    if (closed || !idleReaders.offer(target)) closeQuietly(target);
+                } else {
+                    try {
+                        // Never hand the next caller a half-finished transaction
+                        if (!target.isClosed() && !target.getAutoCommit()) {
+                            target.rollback();
+                            target.setAutoCommit(true);
+                        }
+                    } catch (SQLException e) {
+                        log.error("Rolling back an abandoned transaction failed", e);
+                    } finally {
+                        writerLock.unlock();
+                    }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionManager.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static void closeQuietly(Connection c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (SQLException e) {
+            log.error("Closing a connection failed", e);
+        }
+    }
+
+    /** Point-in-time pool counters. */
+    public static final class PoolStats {
+        public final long writerLeases;
+        public final long writerWaitNanos;
+        public final long readerLeases;
+        public final long readerWaitNanos;
+        public final int readersOpen;
+        public final int readersInUse;
+        public final long busyRetries;
+
+        PoolStats(long writerLeases, long writerWaitNanos, long readerLeases, long readerWaitNanos,
+                  int readersOpen, int readersInUse, long busyRetries) {
+            this.writerLeases = writerLeases;
+            this.writerWaitNanos = writerWaitNanos;
+            this.readerLeases = readerLeases;
+            this.readerWaitNanos = readerWaitNanos;
+            this.readersOpen = readersOpen;
+            this.readersInUse = readersInUse;
+            this.busyRetries = busyRetries;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolStats{writerLeases=" + writerLeases +
+                    ", writerWaitMs=" + writerWaitNanos / 1_000_000 +
+                    ", readerLeases=" + readerLeases +
+                    ", readerWaitMs=" + readerWaitNanos / 1_000_000 +
+                    ", readersOpen=" + readersOpen + "/" + READ_POOL_SIZE +
+                    ", readersInUse=" + readersInUse +
+                    ", busyRetries=" + busyRetries + "}";
+        }
+    }
+}
@@ -0,0 +1,211 @@
+import models.ActivityLog;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily_Usage: seconds per (day, app or site) with the entity's category alongside.
+ * - Updated in the same transaction as every Activity_Log insert
+ * - Sessions that cross midnight are split between the days they cover
+ * - app_id / site_id use 0 for "not this kind", so the primary key stays NOT NULL
+ * - category_id follows the entity's current category (updated on re-categorize), 0 = none
+ */
+public class DailyUsageRollup {
+
+    private static final Log log = Log.get("DB");
+
+    static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS Daily_Usage (
+                day INTEGER NOT NULL,
+                app_id INTEGER NOT NULL DEFAULT 0,
+                site_id INTEGER NOT NULL DEFAULT 0,
+                category_id INTEGER NOT NULL DEFAULT 0,
+                seconds INTEGER NOT NULL,
+                PRIMARY KEY(day, app_id, site_id)
+            ) WITHOUT ROWID;
+            """;
+    static final String CREATE_CATEGORY_INDEX =
+            "CREATE INDEX IF NOT EXISTS idx_daily_usage_category ON Daily_Usage(category_id, day, seconds)";
+
+    private static final String UPSERT =
+            "INSERT INTO Daily_Usage(day, app_id, site_id, category_id, seconds) " +
+            "VALUES(?, ?, ?, COALESCE((SELECT category_id FROM Applications WHERE app_id = ?), " +
+            "                         (SELECT category_id FROM Websites WHERE site_id = ?), 0), ?) " +
+            "ON CONFLICT(day, app_id, site_id) DO UPDATE SET seconds = seconds + excluded.seconds";
+
+    /**
+     * Add freshly logged sessions to the rollup. Runs on the caller's connection and
+     * transaction, so it commits or rolls back together with the Activity_Log insert.
+     */
+    public static void addSessions(Connection conn, List<ActivityLog> rows) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT)) {
+            for (ActivityLog row : rows) {
+                int appId = row.getAppId() != null ? row.getAppId() : 0;
+                int siteId = row.getSiteId() != null ? row.getSiteId() : 0;
+                for (Map.Entry<Long, Integer> part : splitByDay(row.getStartTime(), row.getEndTime(), row.getDuration()).entrySet()) {
+                    ps.setLong(1, part.getKey());
+                    ps.setInt(2, appId);
+                    ps.setInt(3, siteId);
+                    ps.setInt(4, appId);
+                    ps.setInt(5, siteId);
+                    ps.setInt(6, part.getValue());
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /** Keep category_id in step with Applications/Websites after a re-categorize. */
+    public static void updateCategory(Connection conn, boolean website, int entityId, Integer categoryId) throws SQLException {
+        String sql = website
+                ? "UPDATE Daily_Usage SET category_id = ? WHERE site_id = ?"
+                : "UPDATE Daily_Usage SET category_id = ? WHERE app_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, categoryId != null ? categoryId : 0);
+            ps.setInt(2, entityId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Recompute the rollup from Activity_Log. Days already moved to archives are left as they are.
+     * Returns false if it failed (the old rollup is kept). Run by Main --rebuild-rollup.
+     */
+    public static boolean rebuild() {
+        try {
+            ConnectionManager.withWriteRetry(conn -> {
+                conn.setAutoCommit(false);
+                try {
+                    int rows = rebuild(conn);
+                    conn.commit();
+                    log.info("Rebuilt Daily_Usage: {} rows", rows);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                return null;
+            });
+            return true;
+        } catch (SQLException e) {
+            log.error("Rebuilding Daily_Usage failed", e);
+            return false;
+        }
+    }
+
+    // Caller owns the transaction
+    static int rebuild(Connection conn) throws SQLException {
+        // Archived sessions are no longer in Activity_Log; their rollup rows are final
+        return rebuildDays(conn, ActivityArchiver.firstHotDay(conn), Long.MAX_VALUE);
+    }
+
+    /**
+     * Recompute the rollup rows of epoch days [fromDay, toDay] from Activity_Log. Caller owns the transaction.
+     * Every session that overlaps the range is read, however long before it started, for its part inside.
+     */
+    static int rebuildDays(Connection conn, long fromDay, long toDay) throws SQLException {
+        // (day, app_id, site_id) -> seconds
+        Map<RollupKey, Integer> totals = new HashMap<>();
+        try (PreparedStatement sel = conn.prepareStatement(
+                     "SELECT app_id, site_id, start_time, end_time, duration_seconds FROM Activity_Log " +
+                             "WHERE start_time IS NOT NULL AND end_time IS NOT NULL AND day <= ? " +
+                             "AND (day >= ? OR end_time >= ?)")) {
+            sel.setLong(1, toDay);
+            sel.setLong(2, fromDay);
+            // ISO local date-times compare as strings; an earlier start that runs into fromDay still counts
+            sel.setString(3, fromDay == Long.MIN_VALUE ? "" : LocalDate.ofEpochDay(fromDay).atStartOfDay().toString());
+            ResultSet rs = sel.executeQuery();
+            while (rs.next()) {
+                int appId = rs.getInt("app_id");
+                int siteId = rs.getInt("site_id");
+                LocalDateTime start = LocalDateTime.parse(rs.getString("start_time"));
+                LocalDateTime end = LocalDateTime.parse(rs.getString("end_time"));
+                for (Map.Entry<Long, Integer> part : splitByDay(start, end, rs.getInt("duration_seconds")).entrySet()) {
+                    if (part.getKey() < fromDay || part.getKey() > toDay) continue;
+                    totals.merge(new RollupKey(part.getKey(), appId, siteId), part.getValue(), Integer::sum);
+                }
+            }
+        }
+        try (PreparedStatement del = conn.prepareStatement("DELETE FROM Daily_Usage WHERE day BETWEEN ? AND ?")) {
+            del.setLong(1, fromDay);
+            del.setLong(2, toDay);
+            del.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO Daily_Usage(day, app_id, site_id, category_id, seconds) " +
+                        "VALUES(?, ?, ?, COALESCE((SELECT category_id FROM Applications WHERE app_id = ?), " +
+                        "                         (SELECT category_id FROM Websites WHERE site_id = ?), 0), ?)")) {
+            for (Map.Entry<RollupKey, Integer> e : totals.entrySet()) {
+                RollupKey k = e.getKey();
+                ps.setLong(1, k.day);
+                ps.setInt(2, k.appId);
+                ps.setInt(3, k.siteId);
+                ps.setInt(4, k.appId);
+                ps.setInt(5, k.siteId);
+                ps.setInt(6, e.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        return totals.size();
+    }
+
+    /**
+     * Seconds of one session per local day (epoch day -> seconds). The logged duration is
+     * authoritative: whole days get their wall-clock share, the last day gets the remainder.
+     */
+    static Map<Long, Integer> splitByDay(LocalDateTime start, LocalDateTime end, int duration) {
+        Map<Long, Integer> parts = new HashMap<>(4);
+        LocalDate day = start.toLocalDate();
+        LocalDate lastDay = end.toLocalDate();
+        if (!lastDay.isAfter(day)) {
+            parts.put(DatabaseHelper.toDay(day), duration);
+            return parts;
+        }
+        int remaining = duration;
+        LocalDateTime cursor = start;
+        while (day.isBefore(lastDay) && remaining > 0) {
+            LocalDateTime midnight = day.plusDays(1).atStartOfDay();
+            int secs = (int) Math.min(remaining, java.time.Duration.between(cursor, midnight).getSeconds());
+            if (secs > 0) parts.put(DatabaseHelper.toDay(day), secs);
+            remaining -= secs;
+            cursor = midnight;
+            day = day.plusDays(1);
+        }
+        if (remaining > 0) parts.put(DatabaseHelper.toDay(lastDay), remaining);
+        return parts;
+    }
+
+    private static final class RollupKey {
+        final long day;
+        final int appId;
+        final int siteId;
+
+        RollupKey(long day, int appId, int siteId) {
+            this.day = day;
+            this.appId = appId;
+            this.siteId = siteId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RollupKey)) return false;
+            RollupKey k = (RollupKey) o;
+            return day == k.day && appId == k.appId && siteId == k.siteId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(day) * 31 * 31 + appId * 31 + siteId;
+        }
+    }
+}
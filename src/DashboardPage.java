@@ -8,16 +8,20 @@ import javafx.scene.chart.XYChart;
 import javafx.scene.control.Label;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
-import javafx.util.Pair;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.*;
 
 public class DashboardPage extends VBox {
+    private static final Log log = Log.get("Dashboard");
+
     private final PieChart appPie = new PieChart();
     private final PieChart sitePie = new PieChart();
     private final BarChart<String, Number> topAppsBar;
     private final Label productivityLabel = new Label("Productivity: --%");
+    private long shownVersion = -1;  // Refresher thread only
 
     private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread t = new Thread(r, "dashboard-refresher");
@@ -46,35 +50,40 @@ public class DashboardPage extends VBox {
         refresher.scheduleAtFixedRate(this::refreshAll, 0, 5, TimeUnit.SECONDS);
     }
 
+    // Reads the in-memory TodayUsage snapshot; skips the redraw when nothing was counted since the last one
     private void refreshAll() {
         try {
-            List<Pair<String,Integer>> appTotals = DatabaseHelper.queryAppTotalsToday();
-            List<Pair<String,Integer>> siteTotals = DatabaseHelper.querySiteTotalsToday();
-            Pair<Integer,Integer> prodTotal = DatabaseHelper.queryProductiveVsTotalToday();
-            int productive = prodTotal.getKey();
-            int total = prodTotal.getValue();
+            TodayUsage.Snapshot today = TodayUsage.current();
+            if (today.version == shownVersion) return;
+            shownVersion = today.version;
+            List<UsageAggregator.EntityTotal> appTotals = today.apps;
+            List<UsageAggregator.EntityTotal> siteTotals = today.sites;
+            List<UsageAggregator.EntityTotal> topApps = new ArrayList<>(appTotals);
+            topApps.sort(Comparator.comparingInt((UsageAggregator.EntityTotal t) -> t.seconds).reversed());
+            int productive = today.productiveSeconds;
+            int total = today.totalSeconds;
             int score = (total == 0) ? 0 : (int)((productive * 100L) / total);
 
             Platform.runLater(() -> {
                 // update app pie
                 appPie.getData().clear();
-                for (Pair<String,Integer> p : appTotals) {
-                    if (p.getValue() > 0) appPie.getData().add(new PieChart.Data(p.getKey(), p.getValue()));
+                for (UsageAggregator.EntityTotal t : appTotals) {
+                    if (t.seconds > 0) appPie.getData().add(new PieChart.Data(t.name, t.seconds));
                 }
 
                 // update site pie
                 sitePie.getData().clear();
-                for (Pair<String,Integer> p : siteTotals) {
-                    if (p.getValue() > 0) sitePie.getData().add(new PieChart.Data(p.getKey(), p.getValue()));
+                for (UsageAggregator.EntityTotal t : siteTotals) {
+                    if (t.seconds > 0) sitePie.getData().add(new PieChart.Data(t.name, t.seconds));
                 }
 
                 // update top apps bar (top 8)
                 topAppsBar.getData().clear();
                 XYChart.Series<String, Number> series = new XYChart.Series<>();
                 int added = 0;
-                for (Pair<String,Integer> p : appTotals) {
-                    if (added++ >= 8) break;
-                    series.getData().add(new XYChart.Data<>(p.getKey(), p.getValue()));
+                for (UsageAggregator.EntityTotal t : topApps) {
+                    if (added++ >= 8 || t.seconds == 0) break;
+                    series.getData().add(new XYChart.Data<>(t.name, t.seconds));
                 }
                 topAppsBar.getData().add(series);
 
@@ -83,7 +92,7 @@ public class DashboardPage extends VBox {
             });
 
         } catch (Throwable t) {
-            t.printStackTrace();
+            log.error("Dashboard refresh failed", t);
         }
     }
 
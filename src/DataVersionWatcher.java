@@ -0,0 +1,76 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects commits made by other processes (e.g. TrackerService.jar next to the UI).
+ * Polls PRAGMA data_version on the writer connection: it only changes when a
+ * different connection commits, so our own writes never trigger a reload.
+ */
+public class DataVersionWatcher {
+
+    private static final Log log = Log.get("DataVersionWatcher");
+
+    private static final int CHECK_INTERVAL_SECONDS = 2;
+
+    private static final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService scheduler;  // Created by start(), dropped by stop()
+    private static ScheduledFuture<?> task;
+    private static long lastVersion = -1;
+
+    /** Called on the watcher thread after another process committed something. */
+    public static void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public static synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "data-version-watcher");
+            t.setDaemon(true);
+            return t;
+        });
+        task = scheduler.scheduleWithFixedDelay(DataVersionWatcher::check,
+                CHECK_INTERVAL_SECONDS, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (task != null) task.cancel(false);
+        task = null;
+        if (scheduler != null) scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    private static void check() {
+        try {
+            long version;
+            try (Connection conn = ConnectionManager.write();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA data_version")) {
+                version = rs.next() ? rs.getLong(1) : -1;
+            }
+            boolean changed = lastVersion != -1 && version != lastVersion;
+            lastVersion = version;
+            if (!changed) return;
+            for (Runnable listener : listeners) {
+                try {
+                    listener.run();
+                } catch (Throwable t) {
+                    log.error("Listener failed", t);
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Check failed: {}", e.getMessage());
+        } catch (Throwable t) {
+            // Never allow the watcher thread to die
+            log.error("Check failed", t);
+        }
+    }
+}
@@ -1,28 +1,28 @@
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.AbstractMap.SimpleEntry;
 import javafx.util.Pair;
 import java.io.File;  // NEW: For path normalization
+import models.ActivityLog;
 
 public class DatabaseHelper {
-    private static final String DB_URL = "jdbc:sqlite:activity_tracker.db";
+    // Connections are leased from ConnectionManager: write() for INSERT/UPDATE/DELETE/DDL, read() for queries
 
-    public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
-    }
+    private static final Log log = Log.get("DB");
 
     public static void enableWALMode() {
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
+        try (Connection conn = ConnectionManager.write(); Statement stmt = conn.createStatement()) {
             stmt.execute("PRAGMA journal_mode=WAL;");
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Enabling WAL mode failed", e);
         }
     }
 
     public static void createTables() {
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
+        try (Connection conn = ConnectionManager.write(); Statement stmt = conn.createStatement()) {
             stmt.execute("""
                 CREATE TABLE IF NOT EXISTS Categories (
                     category_id INTEGER PRIMARY KEY AUTOINCREMENT,
@@ -53,6 +53,8 @@ public class DatabaseHelper {
                     start_time TEXT,
                     end_time TEXT,
                     duration_seconds INTEGER,
+                    start_epoch INTEGER,
+                    day INTEGER,
                     FOREIGN KEY(app_id) REFERENCES Applications(app_id),
                     FOREIGN KEY(site_id) REFERENCES Websites(site_id)
                 );
@@ -78,98 +80,209 @@ public class DatabaseHelper {
                     FOREIGN KEY(site_id) REFERENCES Websites(site_id)
                 );
             """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS FocusSchedules (
+                    schedule_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    target_kind TEXT NOT NULL,
+                    target TEXT NOT NULL,
+                    days INTEGER NOT NULL,
+                    start_minute INTEGER NOT NULL,
+                    end_minute INTEGER NOT NULL,
+                    enabled INTEGER NOT NULL DEFAULT 1,
+                    label TEXT
+                );
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS UsageQuotas (
+                    quota_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    target_kind TEXT NOT NULL,
+                    target TEXT NOT NULL,
+                    limit_seconds INTEGER NOT NULL,
+                    days INTEGER NOT NULL,
+                    enabled INTEGER NOT NULL DEFAULT 1
+                );
+            """);
             stmt.execute("""
                 CREATE TABLE IF NOT EXISTS Settings (
                     key TEXT PRIMARY KEY,
                     value TEXT
                 );
             """);
+            stmt.execute(ActivityArchiver.CREATE_TABLE);
+            migrateSchema(conn);
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Creating tables failed", e);
+        }
+    }
+
+    // ------------------- SCHEMA MIGRATIONS (tracked in PRAGMA user_version) -------------------
+    private static void migrateSchema(Connection conn) throws SQLException {
+        int version;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+        if (version < 1) {
+            // v1: integer day/epoch columns on Activity_Log so range filters can use indexes
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                Set<String> columns = new HashSet<>();
+                try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(Activity_Log)")) {
+                    while (rs.next()) columns.add(rs.getString("name"));
+                }
+                if (!columns.contains("start_epoch")) stmt.execute("ALTER TABLE Activity_Log ADD COLUMN start_epoch INTEGER");
+                if (!columns.contains("day")) stmt.execute("ALTER TABLE Activity_Log ADD COLUMN day INTEGER");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_activity_day_app ON Activity_Log(day, app_id, duration_seconds)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_activity_day_site ON Activity_Log(day, site_id, duration_seconds)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_activity_start_epoch ON Activity_Log(start_epoch)");
+                stmt.execute("PRAGMA user_version = 1");
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        // Fill rows written before v1 (or by an older build still running elsewhere)
+        backfillActivityTimeColumns(conn);
+        if (version < 2) {
+            // v2: Daily_Usage rollup, built once from the existing log
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(DailyUsageRollup.CREATE_TABLE);
+                stmt.execute(DailyUsageRollup.CREATE_CATEGORY_INDEX);
+                int rows = DailyUsageRollup.rebuild(conn);
+                stmt.execute("PRAGMA user_version = 2");
+                conn.commit();
+                log.info("Created Daily_Usage rollup ({} rows)", rows);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        // Incremental auto-vacuum needs a full VACUUM on existing files; ActivityArchiver switches it on
+        // in the background instead of here, since createTables() runs on the UI thread
+    }
+
+    private static void backfillActivityTimeColumns(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // start_time is local ISO time: julianday() difference gives the epoch day, 'utc' converts to real epoch seconds
+            int rows = stmt.executeUpdate(
+                    "UPDATE Activity_Log SET " +
+                            "day = CAST(julianday(date(start_time)) - 2440587.5 AS INTEGER), " +
+                            "start_epoch = CAST(strftime('%s', start_time, 'utc') AS INTEGER) " +
+                            "WHERE day IS NULL AND start_time IS NOT NULL");
+            if (rows > 0) log.info("Backfilled day/start_epoch on {} Activity_Log rows", rows);
         }
     }
 
     // ------------------- INSERT METHODS (with normalization) -------------------
     public static void insertCategory(String name) {
-        try (Connection conn = getConnection();
+        try (Connection conn = ConnectionManager.write();
              PreparedStatement ps = conn.prepareStatement("INSERT OR IGNORE INTO Categories(name) VALUES(?)")) {
             ps.setString(1, name);
             ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Inserting category failed", e);
         }
     }
 
     public static void insertApplication(String rawName, int categoryId) {
         // NEW: Normalize name - strip path and .exe
         String name = normalizeAppName(rawName);
-        System.out.println("[DB DEBUG] Inserting normalized app name: '" + name + "' from '" + rawName + "'");
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(
-                     "INSERT OR IGNORE INTO Applications(name, category_id) VALUES(?, ?)")) {
-            ps.setString(1, name);
-            ps.setInt(2, categoryId);
-            ps.executeUpdate();
+        log.debug("Inserting normalized app name: '{}' from '{}'", name, rawName);
+        try {
+            ConnectionManager.withWriteRetry(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT OR IGNORE INTO Applications(name, category_id) VALUES(?, ?)")) {
+                    ps.setString(1, name);
+                    ps.setInt(2, categoryId);
+                    return ps.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Inserting application failed", e);
         }
     }
 
     public static void insertWebsite(String rawUrl, int categoryId) {
         // NEW: Normalize URL - strip protocol/query if needed, but keep as-is for now (focus on apps)
-        String url = rawUrl.startsWith("http") ? rawUrl : "http://" + rawUrl;  // Basic normalization
-        System.out.println("[DB DEBUG] Inserting normalized website URL: '" + url + "' from '" + rawUrl + "'");
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(
-                     "INSERT OR IGNORE INTO Websites(url, category_id) VALUES(?, ?)")) {
-            ps.setString(1, url);
-            ps.setInt(2, categoryId);
-            ps.executeUpdate();
+        String url = normalizeSiteUrl(rawUrl);  // Basic normalization
+        log.debug("Inserting normalized website URL: '{}' from '{}'", url, rawUrl);
+        try {
+            ConnectionManager.withWriteRetry(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT OR IGNORE INTO Websites(url, category_id) VALUES(?, ?)")) {
+                    ps.setString(1, url);
+                    ps.setInt(2, categoryId);
+                    return ps.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Inserting website failed", e);
         }
     }
 
+    // Cached: once warm, resolving an id costs no SQL; a miss costs one upsert ... RETURNING
     public static int insertApplicationIfNotExists(String rawName, int categoryId) {
-        insertApplication(rawName, categoryId);
         String name = normalizeAppName(rawName);
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement("SELECT app_id FROM Applications WHERE name=?")) {
-            ps.setString(1, name);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) return rs.getInt("app_id");
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return -1;
+        Integer cached = EntityCache.appId(name);
+        if (cached != null) return cached;
+        int appId = upsertReturningId(
+                "INSERT INTO Applications(name, category_id) VALUES(?, ?) " +
+                        "ON CONFLICT(name) DO UPDATE SET name = excluded.name RETURNING app_id", name, categoryId);
+        EntityCache.putApp(name, appId);
+        return appId;
     }
 
     public static int insertWebsiteIfNotExists(String rawUrl, int categoryId) {
-        insertWebsite(rawUrl, categoryId);
-        String url = rawUrl.startsWith("http") ? rawUrl : "http://" + rawUrl;
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement("SELECT site_id FROM Websites WHERE url=?")) {
-            ps.setString(1, url);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) return rs.getInt("site_id");
+        String url = normalizeSiteUrl(rawUrl);
+        Integer cached = EntityCache.siteId(url);
+        if (cached != null) return cached;
+        int siteId = upsertReturningId(
+                "INSERT INTO Websites(url, category_id) VALUES(?, ?) " +
+                        "ON CONFLICT(url) DO UPDATE SET url = excluded.url RETURNING site_id", url, categoryId);
+        EntityCache.putSite(url, siteId);
+        return siteId;
+    }
+
+    // Existing rows keep their category: the conflict branch only rewrites the key to itself
+    private static int upsertReturningId(String sql, String key, int categoryId) {
+        try {
+            return ConnectionManager.withWriteRetry(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, key);
+                    ps.setInt(2, categoryId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? rs.getInt(1) : -1;
+                    }
+                }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Upsert of {} failed", key, e);
+            return -1;
         }
-        return -1;
     }
 
     // NEW: Helper to normalize app names (strip path and .exe)
-    private static String normalizeAppName(String rawName) {
+    static String normalizeAppName(String rawName) {
         if (rawName == null) return "";
         String name = rawName;
         if (name.contains("\\") || name.contains("/")) {
             name = new File(name).getName();
         }
-        if (name.toLowerCase().endsWith(".exe")) {
+        if (name.regionMatches(true, name.length() - 4, ".exe", 0, 4)) {
             name = name.substring(0, name.length() - 4);
         }
         return name.trim();
     }
+    // The url as stored in Websites (adds "http://" when there is no scheme)
+    static String normalizeSiteUrl(String rawUrl) {
+        return rawUrl.startsWith("http") ? rawUrl : "http://" + rawUrl;
+    }
     // NEW: Helper to normalize URLs (strip protocol/path for display and matching)
     private static String normalizeUrlForDisplay(String rawUrl) {
         if (rawUrl == null) return "";
@@ -181,112 +294,176 @@ public class DatabaseHelper {
     // ------------------- GET METHODS -------------------
     public static List<String> getAllCategories() {
         List<String> list = new ArrayList<>();
-        try (Connection conn = getConnection();
+        try (Connection conn = ConnectionManager.read();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT name FROM Categories")) {
             while (rs.next()) list.add(rs.getString("name"));
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Loading categories failed", e);
         }
         return list;
     }
 
     public static List<String> getAllApplications() {
         List<String> list = new ArrayList<>();
-        try (Connection conn = getConnection();
+        try (Connection conn = ConnectionManager.read();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT name FROM Applications")) {
             while (rs.next()) list.add(rs.getString("name"));
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Loading applications failed", e);
         }
         return list;
     }
 
     public static List<String> getAllWebsites() {
         List<String> list = new ArrayList<>();
-        try (Connection conn = getConnection();
+        try (Connection conn = ConnectionManager.read();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT url FROM Websites")) {
             while (rs.next()) list.add(rs.getString("url"));
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Loading websites failed", e);
         }
         return list;
     }
 
     // ------------------- UPDATE CATEGORY METHODS -------------------
     public static void updateApplicationCategory(int appId, Integer categoryId) {
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(
-                     "UPDATE Applications SET category_id=? WHERE app_id=?")) {
-            if (categoryId != null) ps.setInt(1, categoryId);
-            else ps.setNull(1, Types.INTEGER);
-            ps.setInt(2, appId);
-            ps.executeUpdate();
+        try {
+            ConnectionManager.withWriteRetry(conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE Applications SET category_id=? WHERE app_id=?")) {
+                    if (categoryId != null) ps.setInt(1, categoryId);
+                    else ps.setNull(1, Types.INTEGER);
+                    ps.setInt(2, appId);
+                    ps.executeUpdate();
+                    DailyUsageRollup.updateCategory(conn, false, appId, categoryId);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                return null;
+            });
+            TodayUsage.categoryChanged(false, appId, categoryId);
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Application category update failed", e);
         }
     }
 
     public static void updateWebsiteCategory(int siteId, Integer categoryId) {
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(
-                     "UPDATE Websites SET category_id=? WHERE site_id=?")) {
-            if (categoryId != null) ps.setInt(1, categoryId);
-            else ps.setNull(1, Types.INTEGER);
-            ps.setInt(2, siteId);
-            ps.executeUpdate();
+        try {
+            ConnectionManager.withWriteRetry(conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE Websites SET category_id=? WHERE site_id=?")) {
+                    if (categoryId != null) ps.setInt(1, categoryId);
+                    else ps.setNull(1, Types.INTEGER);
+                    ps.setInt(2, siteId);
+                    ps.executeUpdate();
+                    DailyUsageRollup.updateCategory(conn, true, siteId, categoryId);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                return null;
+            });
+            TodayUsage.categoryChanged(true, siteId, categoryId);
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Website category update failed", e);
         }
     }
 
     // ------------------- ACTIVITY LOG METHODS -------------------
     public static void insertActivityLog(Integer appId, Integer siteId,
                                          LocalDateTime start, LocalDateTime end, int duration) {
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(
-                     "INSERT INTO Activity_Log(app_id, site_id, start_time, end_time, duration_seconds) VALUES(?,?,?,?,?)")) {
-            if (appId != null) ps.setInt(1, appId); else ps.setNull(1, Types.INTEGER);
-            if (siteId != null) ps.setInt(2, siteId); else ps.setNull(2, Types.INTEGER);
-            ps.setString(3, start.toString());
-            ps.setString(4, end.toString());
-            ps.setInt(5, duration);
-            ps.executeUpdate();
+        try {
+            insertActivityLogBatch(List.of(new ActivityLog(0, appId, siteId, start, end, duration)));
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Inserting activity log failed", e);
+        }
+    }
+
+    // Used by ActivityLogWriter: all rows go in one transaction (one fsync per batch)
+    public static void insertActivityLogBatch(List<ActivityLog> rows) throws SQLException {
+        if (rows.isEmpty()) return;
+        ConnectionManager.withWriteRetry(conn -> {
+            conn.setAutoCommit(false);
+            try {
+                insertActivityRows(conn, rows);
+                DailyUsageRollup.addSessions(conn, rows);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            return null;
+        });
+    }
+
+    // Raw Activity_Log insert without the rollup; caller owns the transaction
+    static void insertActivityRows(Connection conn, List<ActivityLog> rows) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO Activity_Log(app_id, site_id, start_time, end_time, duration_seconds, start_epoch, day) " +
+                        "VALUES(?,?,?,?,?,?,?)")) {
+            for (ActivityLog row : rows) {
+                if (row.getAppId() != null) ps.setInt(1, row.getAppId()); else ps.setNull(1, Types.INTEGER);
+                if (row.getSiteId() != null) ps.setInt(2, row.getSiteId()); else ps.setNull(2, Types.INTEGER);
+                ps.setString(3, row.getStartTime().toString());
+                ps.setString(4, row.getEndTime().toString());
+                ps.setInt(5, row.getDuration());
+                ps.setLong(6, toEpochSecond(row.getStartTime()));
+                ps.setLong(7, toDay(row.getStartTime().toLocalDate()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
         }
     }
 
+    // Activity_Log.day: local calendar day as days since 1970-01-01 (same as LocalDate.toEpochDay)
+    public static long toDay(LocalDate date) {
+        return date.toEpochDay();
+    }
+
+    // Activity_Log.start_epoch: UTC epoch seconds of the local start time
+    public static long toEpochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
     public static Pair<Integer,Integer> queryProductiveVsTotalToday() {
         int productive = 0, total = 0;
         LocalDate today = LocalDate.now();
-        try (Connection conn = getConnection();
+        try (Connection conn = ConnectionManager.read();
              PreparedStatement ps = conn.prepareStatement(
-                     "SELECT AL.duration_seconds, C.name AS cat " +
-                             "FROM Activity_Log AL " +
-                             "LEFT JOIN Applications A ON AL.app_id = A.app_id " +
-                             "LEFT JOIN Websites W ON AL.site_id = W.site_id " +
-                             "LEFT JOIN Categories C ON C.category_id = " +
-                             "COALESCE(A.category_id, W.category_id) " +
-                             "WHERE date(AL.start_time)=?")) {
-            ps.setString(1, today.toString());
+                     "SELECT DU.seconds, C.name AS cat " +
+                             "FROM Daily_Usage DU " +
+                             "LEFT JOIN Categories C ON C.category_id = DU.category_id " +
+                             "WHERE DU.day = ?")) {
+            ps.setLong(1, toDay(today));
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                int dur = rs.getInt("duration_seconds");
+                int dur = rs.getInt("seconds");
                 String cat = rs.getString("cat");
                 total += dur;
                 if ("Productive".equalsIgnoreCase(cat)) productive += dur;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Productive vs total query failed", e);
         }
         return new Pair<>(productive, total);
     }
 
     public static void insertInsight(LocalDate date, int total, int productive, int score, String notes) {
-        try (Connection conn = getConnection();
+        try (Connection conn = ConnectionManager.write();
              PreparedStatement ps = conn.prepareStatement(
                      "INSERT OR REPLACE INTO Insights(date, total_seconds, productive_seconds, score, notes) VALUES(?,?,?,?,?)")) {
             ps.setString(1, date.toString());
@@ -296,32 +473,15 @@ public class DatabaseHelper {
             ps.setString(5, notes);
             ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Inserting insight failed", e);
         }
     }
 
     public static List<Map.Entry<Integer, Pair<String,Integer>>> querySitesWithTodaySeconds() {
         List<Map.Entry<Integer, Pair<String,Integer>>> result = new ArrayList<>();
         LocalDate today = LocalDate.now();
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT site_id, url FROM Websites")) {
-            while (rs.next()) {
-                int siteId = rs.getInt("site_id");
-                String url = rs.getString("url");
-                int seconds = 0;
-                try (PreparedStatement ps2 = conn.prepareStatement(
-                        "SELECT SUM(duration_seconds) AS total FROM Activity_Log " +
-                                "WHERE site_id=? AND date(start_time)=?")) {
-                    ps2.setInt(1, siteId);
-                    ps2.setString(2, today.toString());
-                    ResultSet rs2 = ps2.executeQuery();
-                    if (rs2.next()) seconds = rs2.getInt("total");
-                }
-                result.add(new SimpleEntry<>(siteId, new Pair<>(url, seconds)));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        for (UsageAggregator.EntityTotal t : UsageAggregator.siteTotals(today, today)) {
+            result.add(new SimpleEntry<>(t.id, new Pair<>(t.name, t.seconds)));
         }
         return result;
     }
@@ -330,26 +490,23 @@ public class DatabaseHelper {
     public static List<Pair<String,Integer>> queryDailyCategoryTotals(int categoryId, int days) {
         List<Pair<String,Integer>> result = new ArrayList<>();
         LocalDate today = LocalDate.now();
-        try (Connection conn = getConnection()) {
-            for (int i = days - 1; i >= 0; i--) {
-                LocalDate date = today.minusDays(i);
-                int total = 0;
-                try (PreparedStatement ps = conn.prepareStatement(
-                        "SELECT SUM(AL.duration_seconds) AS total " +
-                                "FROM Activity_Log AL " +
-                                "LEFT JOIN Applications A ON AL.app_id = A.app_id " +
-                                "LEFT JOIN Websites W ON AL.site_id = W.site_id " +
-                                "WHERE date(AL.start_time)=? AND " +
-                                "COALESCE(A.category_id, W.category_id)=?")) {
-                    ps.setString(1, date.toString());
-                    ps.setInt(2, categoryId);
-                    ResultSet rs = ps.executeQuery();
-                    if (rs.next()) total = rs.getInt("total");
-                }
-                result.add(new Pair<>(date.toString(), total));
-            }
+        LocalDate first = today.minusDays(days - 1);
+        Map<Long, Integer> totalsByDay = new HashMap<>();
+        try (Connection conn = ConnectionManager.read();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT day, SUM(seconds) AS total FROM Daily_Usage " +
+                             "WHERE category_id = ? AND day BETWEEN ? AND ? " +
+                             "GROUP BY day")) {
+            ps.setInt(1, categoryId);
+            ps.setLong(2, toDay(first));
+            ps.setLong(3, toDay(today));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) totalsByDay.put(rs.getLong("day"), rs.getInt("total"));
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Daily category totals query failed", e);
+        }
+        for (LocalDate date = first; !date.isAfter(today); date = date.plusDays(1)) {
+            result.add(new Pair<>(date.toString(), totalsByDay.getOrDefault(toDay(date), 0)));
         }
         return result;
     }
@@ -357,25 +514,8 @@ public class DatabaseHelper {
     public static List<Pair<String,Integer>> queryAppTotalsToday() {
         List<Pair<String,Integer>> result = new ArrayList<>();
         LocalDate today = LocalDate.now();
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT app_id, name FROM Applications")) {
-            while (rs.next()) {
-                int appId = rs.getInt("app_id");
-                String name = rs.getString("name");
-                int total = 0;
-                try (PreparedStatement ps = conn.prepareStatement(
-                        "SELECT SUM(duration_seconds) AS total FROM Activity_Log " +
-                                "WHERE app_id=? AND date(start_time)=?")) {
-                    ps.setInt(1, appId);
-                    ps.setString(2, today.toString());
-                    ResultSet rs2 = ps.executeQuery();
-                    if (rs2.next()) total = rs2.getInt("total");
-                }
-                result.add(new Pair<>(name, total));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        for (UsageAggregator.EntityTotal t : UsageAggregator.appTotals(today, today)) {
+            result.add(new Pair<>(t.name, t.seconds));
         }
         return result;
     }
@@ -383,25 +523,8 @@ public class DatabaseHelper {
     public static List<Pair<String,Integer>> querySiteTotalsToday() {
         List<Pair<String,Integer>> result = new ArrayList<>();
         LocalDate today = LocalDate.now();
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT site_id, url FROM Websites")) {
-            while (rs.next()) {
-                int siteId = rs.getInt("site_id");
-                String url = rs.getString("url");
-                int total = 0;
-                try (PreparedStatement ps = conn.prepareStatement(
-                        "SELECT SUM(duration_seconds) AS total FROM Activity_Log " +
-                                "WHERE site_id=? AND date(start_time)=?")) {
-                    ps.setInt(1, siteId);
-                    ps.setString(2, today.toString());
-                    ResultSet rs2 = ps.executeQuery();
-                    if (rs2.next()) total = rs2.getInt("total");
-                }
-                result.add(new Pair<>(url, total));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        for (UsageAggregator.EntityTotal t : UsageAggregator.siteTotals(today, today)) {
+            result.add(new Pair<>(t.name, t.seconds));
         }
         return result;
     }
@@ -410,230 +533,178 @@ public class DatabaseHelper {
     public static List<Map.Entry<Integer, Pair<String,Integer>>> queryAppsWithTodaySeconds() {
         List<Map.Entry<Integer, Pair<String,Integer>>> result = new ArrayList<>();
         LocalDate today = LocalDate.now();
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT app_id, name FROM Applications")) {
-            while (rs.next()) {
-                int appId = rs.getInt("app_id");
-                String name = rs.getString("name");
-                int seconds = 0;
-                try (PreparedStatement ps = conn.prepareStatement(
-                        "SELECT SUM(duration_seconds) AS total FROM Activity_Log " +
-                                "WHERE app_id=? AND date(start_time)=?")) {
-                    ps.setInt(1, appId);
-                    ps.setString(2, today.toString());
-                    ResultSet rs2 = ps.executeQuery();
-                    if (rs2.next()) seconds = rs2.getInt("total");
-                }
-                result.add(new SimpleEntry<>(appId, new Pair<>(name, seconds)));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        for (UsageAggregator.EntityTotal t : UsageAggregator.appTotals(today, today)) {
+            result.add(new SimpleEntry<>(t.id, new Pair<>(t.name, t.seconds)));
         }
         return result;
     }
 
     // ------------------- BLOCKING METHODS WITH TRANSACTIONS -------------------
     public static void blockApp(int appId) {
-        System.out.println("[DB DEBUG] Blocking app_id=" + appId);
+        log.debug("Blocking app_id={}", appId);
         Connection conn = null;
         try {
-            conn = getConnection();
+            conn = ConnectionManager.write();
             conn.setAutoCommit(false);
             try (PreparedStatement ps = conn.prepareStatement("INSERT OR IGNORE INTO BlockedApps(app_id) VALUES(?)")) {
                 ps.setInt(1, appId);
                 int rows = ps.executeUpdate();
                 conn.commit();
-                System.out.println("[DB DEBUG] Block app affected " + rows + " rows (1=inserted, 0=already exists)");
+                log.debug("Block app affected {} rows (1=inserted, 0=already exists)", rows);
             }
         } catch (SQLException e) {
             if (conn != null) {
                 try {
                     conn.rollback();
                 } catch (SQLException rollbackEx) {
-                    rollbackEx.printStackTrace();
+                    log.error("BlockApp rollback failed", rollbackEx);
                 }
             }
-            System.err.println("[DB DEBUG] BlockApp failed: " + e.getMessage());
-            e.printStackTrace();
+            log.error("BlockApp failed", e);
         } finally {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
                     conn.close();
                 } catch (SQLException e) {
-                    e.printStackTrace();
+                    log.error("Releasing the writer failed", e);
                 }
             }
         }
+        // Publish the new block set to in-memory Focus Mode checks
+        Blocklist.reload();
     }
 
     public static void unblockApp(int appId) {
-        System.out.println("[DB DEBUG] Unblocking app_id=" + appId);
+        log.debug("Unblocking app_id={}", appId);
         Connection conn = null;
         try {
-            conn = getConnection();
+            conn = ConnectionManager.write();
             conn.setAutoCommit(false);
             try (PreparedStatement ps = conn.prepareStatement("DELETE FROM BlockedApps WHERE app_id=?")) {
                 ps.setInt(1, appId);
                 int rows = ps.executeUpdate();
                 conn.commit();
-                System.out.println("[DB DEBUG] Unblock app affected " + rows + " rows");
+                log.debug("Unblock app affected {} rows", rows);
             }
         } catch (SQLException e) {
             if (conn != null) {
                 try {
                     conn.rollback();
                 } catch (SQLException rollbackEx) {
-                    rollbackEx.printStackTrace();
+                    log.error("UnblockApp rollback failed", rollbackEx);
                 }
             }
-            System.err.println("[DB DEBUG] UnblockApp failed: " + e.getMessage());
-            e.printStackTrace();
+            log.error("UnblockApp failed", e);
         } finally {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
                     conn.close();
                 } catch (SQLException e) {
-                    e.printStackTrace();
+                    log.error("Releasing the writer failed", e);
                 }
             }
         }
+        // Publish the new block set to in-memory Focus Mode checks
+        Blocklist.reload();
     }
 
     public static void blockWebsite(int siteId) {
-        System.out.println("[DB DEBUG] Blocking site_id=" + siteId);
+        log.debug("Blocking site_id={}", siteId);
         Connection conn = null;
         try {
-            conn = getConnection();
+            conn = ConnectionManager.write();
             conn.setAutoCommit(false);
             try (PreparedStatement ps = conn.prepareStatement("INSERT OR IGNORE INTO BlockedWebsites(site_id) VALUES(?)")) {
                 ps.setInt(1, siteId);
                 int rows = ps.executeUpdate();
                 conn.commit();
-                System.out.println("[DB DEBUG] Block website affected " + rows + " rows (1=inserted, 0=already exists)");
+                log.debug("Block website affected {} rows (1=inserted, 0=already exists)", rows);
             }
         } catch (SQLException e) {
             if (conn != null) {
                 try {
                     conn.rollback();
                 } catch (SQLException rollbackEx) {
-                    rollbackEx.printStackTrace();
+                    log.error("BlockWebsite rollback failed", rollbackEx);
                 }
             }
-            System.err.println("[DB DEBUG] BlockWebsite failed: " + e.getMessage());
-            e.printStackTrace();
+            log.error("BlockWebsite failed", e);
         } finally {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
                     conn.close();
                 } catch (SQLException e) {
-                    e.printStackTrace();
+                    log.error("Releasing the writer failed", e);
                 }
             }
         }
+        // Publish the new block set to in-memory Focus Mode checks
+        Blocklist.reload();
     }
 
     public static void unblockWebsite(int siteId) {
-        System.out.println("[DB DEBUG] Unblocking site_id=" + siteId);
+        log.debug("Unblocking site_id={}", siteId);
         Connection conn = null;
         try {
-            conn = getConnection();
+            conn = ConnectionManager.write();
             conn.setAutoCommit(false);
             try (PreparedStatement ps = conn.prepareStatement("DELETE FROM BlockedWebsites WHERE site_id=?")) {
                 ps.setInt(1, siteId);
                 int rows = ps.executeUpdate();
                 conn.commit();
-                System.out.println("[DB DEBUG] Unblock website affected " + rows + " rows");
+                log.debug("Unblock website affected {} rows", rows);
             }
         } catch (SQLException e) {
             if (conn != null) {
                 try {
                     conn.rollback();
                 } catch (SQLException rollbackEx) {
-                    rollbackEx.printStackTrace();
+                    log.error("UnblockWebsite rollback failed", rollbackEx);
                 }
             }
-            System.err.println("[DB DEBUG] UnblockWebsite failed: " + e.getMessage());
-            e.printStackTrace();
+            log.error("UnblockWebsite failed", e);
         } finally {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
                     conn.close();
                 } catch (SQLException e) {
-                    e.printStackTrace();
+                    log.error("Releasing the writer failed", e);
                 }
             }
         }
+        // Publish the new block set to in-memory Focus Mode checks
+        Blocklist.reload();
     }
 
+    // Focus Mode lookups are served from the in-memory Blocklist snapshot (no SQL per call)
     public static boolean isAppBlocked(int appId) {
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM BlockedApps WHERE app_id=?")) {
-            ps.setInt(1, appId);
-            ResultSet rs = ps.executeQuery();
-            return rs.next();
-        } catch (SQLException e) {
-            return false;
-        }
+        return Blocklist.current().isAppBlocked(appId);
     }
 
     public static boolean isSiteBlocked(int siteId) {
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM BlockedWebsites WHERE site_id=?")) {
-            ps.setInt(1, siteId);
-            ResultSet rs = ps.executeQuery();
-            return rs.next();
-        } catch (SQLException e) {
-            return false;
-        }
+        return Blocklist.current().isSiteBlocked(siteId);
     }
 
     public static boolean isAppBlockedByName(String appName) {
         if (appName == null) return false;
-        // NEW: Normalize name before query
-        String normalized = normalizeAppName(appName);
-        System.out.println("[DB DEBUG] Checking block for normalized appName='" + normalized + "' (from '" + appName + "')");
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(
-                     "SELECT 1 FROM BlockedApps BA JOIN Applications A ON BA.app_id = A.app_id WHERE A.name = ?")) {
-            ps.setString(1, normalized);
-            ResultSet rs = ps.executeQuery();
-            boolean blocked = rs.next();
-            System.out.println("[DB DEBUG] App '" + normalized + "' blocked? " + blocked);
-            return blocked;
-        } catch (SQLException e) {
-            System.err.println("[DB DEBUG] isAppBlockedByName failed: " + e.getMessage());
-            return false;
-        }
+        return Blocklist.isAppBlocked(normalizeAppName(appName));
     }
 
+    // Domain match: a blocked site also blocks its subdomains (no more LIKE '%...%')
     public static boolean isSiteBlockedByUrl(String url) {
         if (url == null) return false;
-        String normalized = normalizeUrlForDisplay(url);
-        System.out.println("[DB DEBUG] Checking block for normalized url='" + normalized + "' (from '" + url + "')");
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(
-                     "SELECT 1 FROM BlockedWebsites BW JOIN Websites W ON BW.site_id = W.site_id WHERE W.url LIKE ?")) {
-            ps.setString(1, "%" + normalized + "%"); // Fuzzy match on domain
-            ResultSet rs = ps.executeQuery();
-            boolean blocked = rs.next();
-            System.out.println("[DB DEBUG] Site '" + normalized + "' blocked? " + blocked);
-            return blocked;
-        } catch (SQLException e) {
-            System.err.println("[DB DEBUG] isSiteBlockedByUrl failed: " + e.getMessage());
-            return false;
-        }
+        return Blocklist.isSiteBlocked(url);
     }
 
     // NEW: Trigger notification if blocked app launched (call from monitoring service)
     public static void notifyIfBlockedAppLaunched(String appName) {
         if (isAppBlockedByName(appName)) {
             NotificationHelper.showNotification("Focus Mode Alert", "Blocked app '" + normalizeAppName(appName) + "' detected. Stay focused!");
-            System.out.println("[DB DEBUG] Notification sent for blocked app: " + appName);
+            log.debug("Notification sent for blocked app: {}", appName);
         }
     }
     // NEW: Trigger notification if blocked site visited (call from monitoring service)
@@ -641,96 +712,218 @@ public class DatabaseHelper {
         if (isSiteBlockedByUrl(url)) {
             String normalizedUrl = normalizeUrlForDisplay(url);
             NotificationHelper.showNotification("Focus Mode Alert", "Blocked website '" + normalizedUrl + "' accessed. Stay focused!");
-            System.out.println("[DB DEBUG] Notification sent for blocked site: " + url);
+            log.debug("Notification sent for blocked site: {}", url);
         }
     }
 
     // NEW: Debug method to print blocked apps (call for testing)
     public static void debugBlockedApps() {
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement();
+        try (Connection conn = ConnectionManager.read(); Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT BA.app_id, A.name FROM BlockedApps BA JOIN Applications A ON BA.app_id = A.app_id")) {
-            System.out.println("[DB DEBUG] Blocked Apps:");
+            log.info("Blocked Apps:");
             while (rs.next()) {
-                System.out.println("  ID: " + rs.getInt("app_id") + ", Name: " + rs.getString("name"));
+                log.info("  ID: {}, Name: {}", rs.getInt("app_id"), rs.getString("name"));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Listing blocked apps failed", e);
         }
     }
 
+    // Cached in SettingsStore; kept here for existing callers
     public static void setFocusModeEnabled(boolean enabled) {
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(
-                     "INSERT OR REPLACE INTO Settings(key, value) VALUES(?, ?)")) {
-            ps.setString(1, "focus_mode_enabled");
-            ps.setString(2, enabled ? "true" : "false");
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        SettingsStore.setFocusModeEnabled(enabled);
     }
 
     public static boolean isFocusModeEnabled() {
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement("SELECT value FROM Settings WHERE key = ?")) {
-            ps.setString(1, "focus_mode_enabled");
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return "true".equals(rs.getString("value"));
-            }
-            return false;
-        } catch (SQLException e) {
-            return false;
-        }
+        return SettingsStore.isFocusModeEnabled();
     }
 
     public static List<Map.Entry<Integer, Pair<String, Boolean>>> getAppsWithBlockedStatus() {
+        return queryBlockedStatus(
+                "SELECT A.app_id, A.name, BA.app_id IS NOT NULL AS blocked " +
+                        "FROM Applications A LEFT JOIN BlockedApps BA ON BA.app_id = A.app_id ORDER BY A.app_id");
+    }
+
+    public static List<Map.Entry<Integer, Pair<String, Boolean>>> getWebsitesWithBlockedStatus() {
+        return queryBlockedStatus(
+                "SELECT W.site_id, W.url, BW.site_id IS NOT NULL AS blocked " +
+                        "FROM Websites W LEFT JOIN BlockedWebsites BW ON BW.site_id = W.site_id ORDER BY W.site_id");
+    }
+
+    // Columns: id, name, blocked
+    private static List<Map.Entry<Integer, Pair<String, Boolean>>> queryBlockedStatus(String sql) {
         List<Map.Entry<Integer, Pair<String, Boolean>>> result = new ArrayList<>();
-        try (Connection conn = getConnection();
+        try (Connection conn = ConnectionManager.read();
              Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT app_id, name FROM Applications")) {
+             ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                int appId = rs.getInt("app_id");
-                String name = rs.getString("name");
-                // Validation: Check if app_id is valid (redundant but logs issues)
-                try (PreparedStatement validatePs = conn.prepareStatement("SELECT 1 FROM Applications WHERE app_id=?")) {
-                    validatePs.setInt(1, appId);
-                    if (!validatePs.executeQuery().next()) {
-                        System.err.println("[DB DEBUG] Invalid app_id=" + appId + " in getAppsWithBlockedStatus!");
-                        continue;
-                    }
-                }
-                boolean blocked = isAppBlocked(appId);
-                result.add(new SimpleEntry<>(appId, new Pair<>(name, blocked)));
+                result.add(new SimpleEntry<>(rs.getInt(1), new Pair<>(rs.getString(2), rs.getBoolean(3))));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Blocked status query failed", e);
         }
         return result;
     }
 
-    public static List<Map.Entry<Integer, Pair<String, Boolean>>> getWebsitesWithBlockedStatus() {
-        List<Map.Entry<Integer, Pair<String, Boolean>>> result = new ArrayList<>();
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT site_id, url FROM Websites")) {
-            while (rs.next()) {
-                int siteId = rs.getInt("site_id");
-                String url = rs.getString("url");
-                // Validation: Check if site_id is valid
-                try (PreparedStatement validatePs = conn.prepareStatement("SELECT 1 FROM Websites WHERE site_id=?")) {
-                    validatePs.setInt(1, siteId);
-                    if (!validatePs.executeQuery().next()) {
-                        System.err.println("[DB DEBUG] Invalid site_id=" + siteId + " in getWebsitesWithBlockedStatus!");
-                        continue;
+    // ------------------- FOCUS SCHEDULES -------------------
+    /** Insert a recurring rule (validated by FocusSchedule.Rule). Returns its id, or -1 on failure. */
+    public static int addFocusSchedule(String kind, String target, int days, int startMinute, int endMinute, String label) {
+        FocusSchedule.Rule rule = new FocusSchedule.Rule(0, kind, target, days, startMinute, endMinute, true, label);
+        int id;
+        try {
+            id = ConnectionManager.withWriteRetry(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO FocusSchedules(target_kind, target, days, start_minute, end_minute, enabled, label) " +
+                                "VALUES(?, ?, ?, ?, ?, 1, ?) RETURNING schedule_id")) {
+                    ps.setString(1, rule.kind);
+                    ps.setString(2, rule.target);
+                    ps.setInt(3, rule.days);
+                    ps.setInt(4, rule.startMinute);
+                    ps.setInt(5, rule.endMinute);
+                    ps.setString(6, rule.label);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? rs.getInt(1) : -1;
                     }
                 }
-                boolean blocked = isSiteBlocked(siteId);
-                result.add(new SimpleEntry<>(siteId, new Pair<>(url, blocked)));
-            }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Adding focus schedule failed", e);
+            return -1;
         }
-        return result;
+        FocusSchedule.reload();
+        return id;
+    }
+
+    public static void setFocusScheduleEnabled(int scheduleId, boolean enabled) {
+        updateFocusSchedule("UPDATE FocusSchedules SET enabled=? WHERE schedule_id=?", enabled ? 1 : 0, scheduleId);
+    }
+
+    public static void deleteFocusSchedule(int scheduleId) {
+        updateFocusSchedule("DELETE FROM FocusSchedules WHERE schedule_id=?", scheduleId);
+    }
+
+    private static void updateFocusSchedule(String sql, int... params) {
+        try {
+            ConnectionManager.withWriteRetry(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < params.length; i++) ps.setInt(i + 1, params[i]);
+                    return ps.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            log.error("Focus schedule update failed", e);
+            return;
+        }
+        // Rebuild the interval index and re-arm the boundary wakeup
+        FocusSchedule.reload();
+    }
+
+    // ------------------- USAGE QUOTAS -------------------
+    /** Insert a daily limit (validated by UsageQuotas.Quota). Returns its id, or -1 on failure. */
+    public static int addUsageQuota(String kind, String target, int limitSeconds, int days) {
+        UsageQuotas.Quota quota = new UsageQuotas.Quota(0, kind, target, limitSeconds, days, true);
+        int id;
+        try {
+            id = ConnectionManager.withWriteRetry(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO UsageQuotas(target_kind, target, limit_seconds, days, enabled) " +
+                                "VALUES(?, ?, ?, ?, 1) RETURNING quota_id")) {
+                    ps.setString(1, quota.kind);
+                    ps.setString(2, quota.target);
+                    ps.setInt(3, quota.limitSeconds);
+                    ps.setInt(4, quota.days);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? rs.getInt(1) : -1;
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            log.error("Adding usage quota failed", e);
+            return -1;
+        }
+        UsageQuotas.reload();
+        return id;
+    }
+
+    public static void setUsageQuotaEnabled(int quotaId, boolean enabled) {
+        updateUsageQuota("UPDATE UsageQuotas SET enabled=? WHERE quota_id=?", enabled ? 1 : 0, quotaId);
+    }
+
+    public static void deleteUsageQuota(int quotaId) {
+        updateUsageQuota("DELETE FROM UsageQuotas WHERE quota_id=?", quotaId);
+    }
+
+    private static void updateUsageQuota(String sql, int... params) {
+        try {
+            ConnectionManager.withWriteRetry(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < params.length; i++) ps.setInt(i + 1, params[i]);
+                    return ps.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            log.error("Usage quota update failed", e);
+            return;
+        }
+        // The tracking thread regroups its counters under the new rules on its next tick
+        UsageQuotas.reload();
+    }
+
+    // ------------------- BULK BLOCKING -------------------
+    /**
+     * Apply many block/unblock changes (id → blocked) in one transaction.
+     * Returns the number of rows actually changed, or -1 if nothing was saved.
+     */
+    public static int setAppsBlocked(Map<Integer, Boolean> changes) {
+        return applyBlockChanges("BlockedApps", "app_id", changes);
+    }
+
+    public static int setWebsitesBlocked(Map<Integer, Boolean> changes) {
+        return applyBlockChanges("BlockedWebsites", "site_id", changes);
+    }
+
+    private static int applyBlockChanges(String table, String idColumn, Map<Integer, Boolean> changes) {
+        if (changes.isEmpty()) return 0;
+        int changed;
+        try {
+            changed = ConnectionManager.withWriteRetry(conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement insert = conn.prepareStatement(
+                        "INSERT OR IGNORE INTO " + table + "(" + idColumn + ") VALUES(?)");
+                     PreparedStatement delete = conn.prepareStatement(
+                             "DELETE FROM " + table + " WHERE " + idColumn + "=?")) {
+                    boolean anyInsert = false, anyDelete = false;
+                    for (Map.Entry<Integer, Boolean> e : changes.entrySet()) {
+                        PreparedStatement ps = e.getValue() ? insert : delete;
+                        ps.setInt(1, e.getKey());
+                        ps.addBatch();
+                        if (e.getValue()) anyInsert = true; else anyDelete = true;
+                    }
+                    int rows = 0;
+                    if (anyInsert) rows += countUpdated(insert.executeBatch());
+                    if (anyDelete) rows += countUpdated(delete.executeBatch());
+                    conn.commit();
+                    return rows;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            });
+        } catch (SQLException e) {
+            log.error("Bulk update of {} failed", table, e);
+            return -1;
+        }
+        log.debug("{}: {} requested, {} rows changed", table, changes.size(), changed);
+        // Publish the new block set to in-memory Focus Mode checks (once for the whole batch)
+        Blocklist.reload();
+        return changed;
+    }
+
+    private static int countUpdated(int[] counts) {
+        int n = 0;
+        for (int c : counts) if (c > 0) n += c;
+        return n;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares WebsiteTracker.extractDomainFromTitle with the linear-scan version it replaced.
+ * - Titles: the synthetic browser mix plus random noise titles, as seen by a real poll loop
+ * - Keyword scaling: a linear contains() scan against KeywordMatcher over growing keyword tables
+ * Each case is warmed up first and then measured over several rounds; the best round is reported.
+ *
+ *   java DomainMatchBench [iterations]     (default 200000)
+ */
+public class DomainMatchBench {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String[] titles = titles(64, 7);
+
+        // Same answers as before, except where longest-match intentionally differs
+        int differ = 0;
+        for (String t : titles) {
+            String a = Legacy.extract(t);
+            String b = WebsiteTracker.extractDomainUncached(t);
+            if (a == null ? b != null : !a.equals(b)) {
+                differ++;
+                System.out.println("differs: '" + t + "' legacy=" + a + " now=" + b);
+            }
+        }
+        System.out.println(differ + " of " + titles.length + " titles differ");
+
+        report("legacy linear scan", iterations, i -> Legacy.extract(titles[i % titles.length]));
+        report("compiled, no memo", iterations, i -> WebsiteTracker.extractDomainUncached(titles[i % titles.length]));
+        report("compiled + memo", iterations, i -> WebsiteTracker.extractDomainFromTitle(titles[i % titles.length]));
+        System.out.println(WebsiteTracker.memoStats());
+
+        for (int n : new int[]{100, 1_000, 10_000}) {
+            Map<String, String> table = keywords(n);
+            List<String[]> pairs = new ArrayList<>();
+            for (Map.Entry<String, String> e : table.entrySet()) pairs.add(new String[]{e.getKey(), e.getValue()});
+            KeywordMatcher<String> matcher = new KeywordMatcher<>(table);
+            String[] lower = new String[titles.length];
+            for (int i = 0; i < titles.length; i++) lower[i] = titles[i].toLowerCase(Locale.ROOT);
+            int scaled = Math.max(1_000, iterations / (n / 100));
+            report("keywords=" + n + " linear", scaled, i -> Legacy.scan(pairs, lower[i % lower.length]));
+            report("keywords=" + n + " automaton", scaled, i -> matcher.longest(lower[i % lower.length]));
+        }
+    }
+
+    private interface Op {
+        Object run(int i);
+    }
+
+    private static void report(String name, int iterations, Op op) {
+        long best = Long.MAX_VALUE;
+        int sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Object r = op.run(i);
+                if (r != null) sink += r.hashCode();
+            }
+            long nanos = System.nanoTime() - t0;
+            if (round >= WARMUP_ROUNDS) best = Math.min(best, nanos);
+        }
+        System.out.printf("%-28s %8.1f ns/op  (sink %d)%n", name, best / (double) iterations, sink & 0xf);
+    }
+
+    // -------------------- INPUT --------------------
+    private static String[] titles(int n, long seed) {
+        String[] base = {
+                "Pull requests · GitHub - Google Chrome",
+                "YouTube - Google Chrome",
+                "Liked songs - YouTube Music - Google Chrome",
+                "Stack Overflow - Where Developers Learn - Google Chrome",
+                "Instagram — Mozilla Firefox",
+                "news.ycombinator.com - Brave",
+                "Inbox (12) - someone@example.com - Gmail - Microsoft Edge",
+                "r/java - Reddit - Chromium",
+                "My Drive - Google Drive - Google Chrome",
+                "Untitled - Opera",
+        };
+        Random random = new Random(seed);
+        String[] out = new String[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = i < base.length ? base[i]
+                    : "Document " + random.nextInt(100_000) + " – notes and drafts - Google Chrome";
+        }
+        return out;
+    }
+
+    private static Map<String, String> keywords(int n) {
+        Map<String, String> table = new LinkedHashMap<>();
+        Random random = new Random(n);
+        while (table.size() < n - 2) {
+            StringBuilder sb = new StringBuilder();
+            int len = 5 + random.nextInt(8);
+            for (int i = 0; i < len; i++) sb.append((char) ('a' + random.nextInt(26)));
+            table.put(sb.toString(), sb + ".com");
+        }
+        // Real hits at the end of the table: the worst case for a linear scan
+        table.put("youtube", "youtube.com");
+        table.put("github", "github.com");
+        return table;
+    }
+
+    // -------------------- REFERENCE: implementation before the compiled matcher --------------------
+    private static final class Legacy {
+        private static final String[] BROWSER_SUFFIXES = {
+                " - google chrome", " — google chrome", " – google chrome",
+                " - microsoft edge", " - firefox", " - mozilla firefox",
+                " - brave", " - opera", " - chromium", " - chrome"
+        };
+        private static final String[][] KEYWORD_MAP = {
+                {"youtube", "youtube.com"}, {"stack overflow", "stackoverflow.com"},
+                {"stackoverflow", "stackoverflow.com"}, {"github", "github.com"},
+                {"gitlab", "gitlab.com"}, {"gmail", "mail.google.com"}, {"reddit", "reddit.com"},
+                {"twitter", "twitter.com"}, {"linkedin", "linkedin.com"}, {"medium", "medium.com"},
+                {"google drive", "drive.google.com"}, {"notion", "notion.so"}, {"discord", "discord.com"},
+                {"zoom", "zoom.us"}, {"coursera", "coursera.org"}, {"udemy", "udemy.com"},
+                {"amazon", "amazon.com"}, {"youtube music", "music.youtube.com"}
+        };
+        private static final Pattern DOMAIN_PATTERN = Pattern.compile("([\\w.-]+\\.[a-z]{2,6})", Pattern.CASE_INSENSITIVE);
+
+        static String extract(String title) {
+            String t = title.trim().toLowerCase(Locale.ROOT);
+            for (String suffix : BROWSER_SUFFIXES) {
+                if (t.endsWith(suffix)) {
+                    t = t.substring(0, t.length() - suffix.length()).trim();
+                    break;
+                }
+            }
+            Matcher m = DOMAIN_PATTERN.matcher(t);
+            if (m.find()) {
+                String domain = m.group(1).toLowerCase(Locale.ROOT);
+                if (domain.startsWith("www.")) domain = domain.substring(4);
+                return domain;
+            }
+            for (String[] kv : KEYWORD_MAP) {
+                if (t.contains(kv[0])) return kv[1];
+            }
+            return null;
+        }
+
+        static String scan(List<String[]> pairs, String t) {
+            for (String[] kv : pairs) {
+                if (t.contains(kv[0])) return kv[1];
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Immutable set of domains stored as a trie of reversed labels ("com" → "youtube" → "music").
+ * - Lookups walk the host from its last label backwards and never allocate
+ * - Matching is case-insensitive; stored labels are lower-case
+ * - A stored domain also matches all of its subdomains
+ */
+public final class DomainTrie {
+
+    private final Node root = new Node();
+    private final int size;
+
+    public DomainTrie(Collection<String> domains) {
+        int n = 0;
+        for (String d : domains) {
+            if (d == null) continue;
+            String domain = d.trim().toLowerCase(Locale.ROOT);
+            if (domain.isEmpty()) continue;
+            insert(domain);
+            n++;
+        }
+        size = n;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** True if host, or any parent domain of it, is in the set. */
+    public boolean matches(String host) {
+        return host != null && matches(host, 0, host.length());
+    }
+
+    /** Same as {@link #matches(String)} for the region host[from, to). */
+    public boolean matches(String host, int from, int to) {
+        Node node = root;
+        int end = to;
+        while (end > from) {
+            int dot = lastDot(host, from, end);
+            node = node.child(host, dot + 1, end);
+            if (node == null) return false;
+            if (node.terminal) return true;
+            end = dot;
+        }
+        return false;
+    }
+
+    // -------------------- INTERNALS --------------------
+    private void insert(String domain) {
+        Node node = root;
+        int end = domain.length();
+        while (end > 0) {
+            int dot = lastDot(domain, 0, end);
+            if (dot + 1 < end) node = node.getOrAdd(domain.substring(dot + 1, end));
+            end = dot;
+        }
+        node.terminal = true;
+    }
+
+    // Index of the last '.' in s[from, end), or from - 1 if there is none
+    static int lastDot(String s, int from, int end) {
+        for (int i = end - 1; i >= from; i--) {
+            if (s.charAt(i) == '.') return i;
+        }
+        return from - 1;
+    }
+
+    // String.hashCode() of the lower-cased region, computed in place
+    static int labelHash(String s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) h = 31 * h + Character.toLowerCase(s.charAt(i));
+        return h;
+    }
+
+    /** Trie node with an open-addressing table of child labels. */
+    static final class Node {
+        private String[] keys = new String[4];
+        private Node[] children = new Node[4];
+        private int count;
+        boolean terminal;
+
+        Node child(String s, int from, int to) {
+            int len = to - from;
+            if (len <= 0 || count == 0) return null;
+            int mask = keys.length - 1;
+            for (int i = spread(labelHash(s, from, to)) & mask; ; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key == null) return null;
+                if (key.length() == len && key.regionMatches(true, 0, s, from, len)) return children[i];
+            }
+        }
+
+        Node getOrAdd(String label) {
+            Node existing = child(label, 0, label.length());
+            if (existing != null) return existing;
+            if ((count + 1) * 2 > keys.length) resize();
+            Node node = new Node();
+            put(label, node);
+            return node;
+        }
+
+        private void put(String label, Node node) {
+            int mask = keys.length - 1;
+            int i = spread(label.hashCode()) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = label;
+            children[i] = node;
+            count++;
+        }
+
+        private void resize() {
+            String[] oldKeys = keys;
+            Node[] oldChildren = children;
+            keys = new String[oldKeys.length * 2];
+            children = new Node[oldKeys.length * 2];
+            count = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) put(oldKeys[i], oldChildren[i]);
+            }
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory name → id dictionary for Applications and Websites.
+ * - Keys are exactly what is stored in the DB (normalized app name, "http://..." site url)
+ * - Warmed once at startup, filled on every insert, invalidated on rename/delete
+ * - Bounded: once MAX_ENTRIES is reached an arbitrary entry is dropped for each new one
+ */
+public class EntityCache {
+
+    private static final Log log = Log.get("EntityCache");
+
+    private static final int MAX_ENTRIES = 10_000; // per kind
+
+    private static final ConcurrentHashMap<String, Integer> appIds = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Integer> siteIds = new ConcurrentHashMap<>();
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    // -------------------- LOOKUPS --------------------
+    public static Integer appId(String name) {
+        return lookup(appIds, name);
+    }
+
+    public static Integer siteId(String url) {
+        return lookup(siteIds, url);
+    }
+
+    // -------------------- POPULATE / INVALIDATE --------------------
+    public static void putApp(String name, int appId) {
+        put(appIds, name, appId);
+    }
+
+    public static void putSite(String url, int siteId) {
+        put(siteIds, url, siteId);
+    }
+
+    public static void invalidateApp(String name) {
+        if (name != null) appIds.remove(name);
+    }
+
+    public static void invalidateSite(String url) {
+        if (url != null) siteIds.remove(url);
+    }
+
+    public static void clear() {
+        appIds.clear();
+        siteIds.clear();
+    }
+
+    /** Load every known application and website (up to the bound). */
+    public static void warm() {
+        try (Connection conn = ConnectionManager.read();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT app_id, name FROM Applications LIMIT " + MAX_ENTRIES)) {
+                while (rs.next()) appIds.put(rs.getString("name"), rs.getInt("app_id"));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT site_id, url FROM Websites LIMIT " + MAX_ENTRIES)) {
+                while (rs.next()) siteIds.put(rs.getString("url"), rs.getInt("site_id"));
+            }
+            log.info("Warmed: {} apps, {} sites", appIds.size(), siteIds.size());
+        } catch (SQLException e) {
+            log.error("Warm-up failed", e);
+        }
+    }
+
+    public static String stats() {
+        return "apps=" + appIds.size() + ", sites=" + siteIds.size() +
+                ", hits=" + hits.get() + ", misses=" + misses.get();
+    }
+
+    // -------------------- INTERNALS --------------------
+    private static Integer lookup(ConcurrentHashMap<String, Integer> map, String key) {
+        if (key == null) return null;
+        Integer id = map.get(key);
+        if (id != null) hits.incrementAndGet(); else misses.incrementAndGet();
+        return id;
+    }
+
+    private static void put(ConcurrentHashMap<String, Integer> map, String key, int id) {
+        if (key == null || id <= 0) return;
+        if (map.size() >= MAX_ENTRIES && !map.containsKey(key)) {
+            Iterator<String> it = map.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        map.put(key, id);
+    }
+}
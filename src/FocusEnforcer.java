@@ -0,0 +1,152 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Focus Mode stage: warns when the foreground item is blocked.
+ * - Runs on every raw sample, ahead of debounce, so a blocked item is flagged on the poll that first sees it
+ * - Blocked means: on the manual Blocklist while Focus Mode is on, covered by a FocusSchedule rule active now,
+ *   or over its daily UsageQuotas limit
+ * - Focus Mode state is mirrored from SettingsStore and lookups are in-memory (no SQL per poll)
+ * - Category rules match the item's stored category (TodayUsage.categoryOf), not the classifier's hint
+ * - The verdict for a sample is reused while the classifier hands back the same Classification
+ *   and neither the blocklist, the active schedule, the exceeded quotas nor any stored category changed
+ * - At most one warning per item every COOLDOWN_SECONDS; toggling Focus Mode or a schedule boundary resets all cooldowns
+ * - While armed (something can be blocked right now) it caps the poll delay at ARMED_MAX_POLL_MS for
+ *   ARMED_WINDOW_MS after the foreground last changed (or Focus Mode / the schedule did), then at
+ *   ARMED_IDLE_MAX_POLL_MS: a window that stays put costs fewer wakeups, but a switch to a blocked app is
+ *   still caught within about a second
+ */
+public class FocusEnforcer implements TrackingEngine.Enforcer {
+
+    private static final Log log = Log.get("Focus");
+
+    // -------------------- CONFIGURABLE SETTINGS --------------------
+    private static final int COOLDOWN_SECONDS = 30;
+    private static final long COOLDOWN_NANOS = COOLDOWN_SECONDS * 1_000_000_000L;
+    static final long ARMED_MAX_POLL_MS = 400;     // Bounds change-to-alert latency while armed
+    static final long ARMED_WINDOW_MS = 30_000;    // ...for this long after the last foreground change
+    static final long ARMED_IDLE_MAX_POLL_MS = 1000; // Cap while armed once the window has been stable longer
+    private static final long ARMED_WINDOW_NANOS = ARMED_WINDOW_MS * 1_000_000L;
+    private static final int PRUNE_ABOVE = 256;    // Drop expired cooldowns once the map gets this big
+
+    private final BiConsumer<String, String> notifier;
+    private volatile boolean focusModeOn;
+    private volatile boolean resetCooldowns;
+
+    // -------------------- STATE (tracking thread only) --------------------
+    private final Map<String, Long> lastAlertNanos = new HashMap<>();  // "a:" / "w:" + item → last warning
+    private TrackingEngine.Classification lastSample;
+    private long lastBlocklistVersion = -1;
+    private boolean lastFocusModeOn;
+    private FocusSchedule.Active lastSchedule;
+    private Set<UsageQuotas.Quota> lastExceeded;
+    private long lastCategoriesVersion = -1;
+    private UsageQuotas.Quota lastQuota;   // Set when lastBlocked is due to a used-up quota
+    private boolean lastBlocked;
+    private long lastChangeNanos;
+    private boolean recentChange;          // Within ARMED_WINDOW_MS of lastChangeNanos at the last check
+
+    // -------------------- METRICS --------------------
+    private long lookups;
+    private long alerts;
+
+    public FocusEnforcer() {
+        this(NotificationHelper::showNotification);
+    }
+
+    /** notifier receives (title, message); benchmarks pass their own to time alerts. */
+    public FocusEnforcer(BiConsumer<String, String> notifier) {
+        this.notifier = notifier;
+        focusModeOn = SettingsStore.isFocusModeEnabled();
+        SettingsStore.addListener(this::onSettingChanged);
+        FocusSchedule.addListener(() -> resetCooldowns = true);
+    }
+
+    private void onSettingChanged(String key, String value) {
+        if (!SettingsStore.FOCUS_MODE_ENABLED.equals(key)) return;
+        focusModeOn = "true".equals(value);
+        resetCooldowns = true;  // Warn immediately if a blocked item is already in front
+        log.debug("Focus mode changed: {}", focusModeOn ? "ON" : "OFF");
+    }
+
+    @Override
+    public void check(TrackingEngine.Classification sample, boolean changed, long nowNanos) {
+        boolean reset = resetCooldowns;
+        if (reset) {
+            resetCooldowns = false;
+            lastAlertNanos.clear();
+        }
+        if (changed || reset) lastChangeNanos = nowNanos;
+        recentChange = nowNanos - lastChangeNanos <= ARMED_WINDOW_NANOS;
+        if (!isBlocked(sample)) return;
+
+        String key = (sample.website ? "w:" : "a:") + sample.item;
+        Long last = lastAlertNanos.get(key);
+        if (last != null && nowNanos - last <= COOLDOWN_NANOS) return;
+        if (lastAlertNanos.size() >= PRUNE_ABOVE) pruneExpired(nowNanos);
+        lastAlertNanos.put(key, nowNanos);
+        alerts++;
+        log.debug("BLOCKED DETECTED - showing notification for '{}'", sample.item);
+        UsageQuotas.Quota quota = lastQuota;
+        if (quota != null) {
+            notifier.accept("Daily Limit Reached", "You've used your " + UsageQuotas.formatLimit(quota.limitSeconds)
+                    + " for " + sample.item + " today - it stays blocked until tomorrow.");
+        } else {
+            notifier.accept("Focus Mode Active",
+                    "Avoid " + sample.item + " - Stay focused and try to reduce distractions!");
+        }
+    }
+
+    private boolean isBlocked(TrackingEngine.Classification sample) {
+        boolean focusOn = focusModeOn;
+        FocusSchedule.Active schedule = FocusSchedule.active();
+        Set<UsageQuotas.Quota> exceeded = UsageQuotas.exceeded();
+        long version = Blocklist.current().version;
+        long categoriesVersion = TodayUsage.categoriesVersion();
+        if (sample == lastSample && version == lastBlocklistVersion && focusOn == lastFocusModeOn
+                && schedule == lastSchedule && exceeded == lastExceeded && categoriesVersion == lastCategoriesVersion) {
+            return lastBlocked;
+        }
+        lookups++;
+        lastSample = sample;
+        lastBlocklistVersion = version;
+        lastFocusModeOn = focusOn;
+        lastSchedule = schedule;
+        lastExceeded = exceeded;
+        lastCategoriesVersion = categoriesVersion;
+        // The hint is only what a new item is inserted with; the user may have re-categorized it since
+        int category = schedule.hasCategoryRules()
+                ? TodayUsage.categoryOf(sample.item, sample.website, sample.categoryHint)
+                : sample.categoryHint;
+        // Blocklist lookups also apply the name/URL normalization used when items are stored.
+        // Sites are matched on the full host, so a block on a subdomain survives the eTLD+1 reduction
+        boolean blocked = (focusOn && (sample.website
+                ? DatabaseHelper.isSiteBlockedByUrl(sample.host)
+                : DatabaseHelper.isAppBlockedByName(sample.item)))
+                || schedule.blocks(sample.website ? sample.host : sample.item, sample.website, category);
+        lastQuota = blocked ? null : UsageQuotas.blocking(sample.item, sample.website);
+        lastBlocked = blocked || lastQuota != null;
+        return lastBlocked;
+    }
+
+    private void pruneExpired(long nowNanos) {
+        for (Iterator<Long> it = lastAlertNanos.values().iterator(); it.hasNext(); ) {
+            if (nowNanos - it.next() > COOLDOWN_NANOS) it.remove();
+        }
+    }
+
+    @Override
+    public long maxPollMillis() {
+        boolean armed = (focusModeOn && Blocklist.current().hasBlockedItems()) || !FocusSchedule.active().isEmpty()
+                || !UsageQuotas.exceeded().isEmpty();
+        if (!armed) return Long.MAX_VALUE;
+        return recentChange ? ARMED_MAX_POLL_MS : ARMED_IDLE_MAX_POLL_MS;
+    }
+
+    public String stats() {
+        return "focus{lookups=" + lookups + ", alerts=" + alerts + ", cooldowns=" + lastAlertNanos.size() + "}";
+    }
+}
@@ -0,0 +1,105 @@
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end Focus Mode latency: time from a blocked app coming to the foreground to its alert.
+ * - Runs a real TrackingEngine on its own scheduler with the configured adaptive poll bounds
+ * - The foreground comes from a probe the bench switches by hand; before each switch it stays on a
+ *   neutral app for a random while, so the poll delay has backed off as it would in real use
+ * - Focus Mode is toggled between rounds, which clears the per-item cooldowns
+ * - Short rounds switch 1–4 s after the toggle (inside FocusEnforcer.ARMED_WINDOW_MS); stable rounds wait past
+ *   the window first, so they measure the idle cap a user sees after sitting on one window for a while
+ * Blocks Steam in a new database in a temp directory, or in -Dtracker.db=<path> if given.
+ *
+ *   java FocusLatencyBench [rounds] [stableRounds]     (default 20 and 3; a stable round takes ~35 s)
+ */
+public class FocusLatencyBench {
+
+    private static final ForegroundSnapshot NEUTRAL = new ForegroundSnapshot(0x10001L, 1001, "idea64.exe", "Main.java");
+    private static final ForegroundSnapshot BLOCKED = new ForegroundSnapshot(0x10002L, 1002, "steam.exe", "Steam");
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int stableRounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        System.out.println("database: " + ConnectionManager.useScratchDatabase("focus-latency-bench"));
+
+        DatabaseHelper.enableWALMode();
+        DatabaseHelper.createTables();
+        DatabaseHelper.blockApp(DatabaseHelper.insertApplicationIfNotExists("Steam", 2));
+        SettingsStore.setFocusModeEnabled(true);
+
+        ManualProbe probe = new ManualProbe();
+        BlockingQueue<Long> alerts = new ArrayBlockingQueue<>(16);
+        FocusEnforcer enforcer = new FocusEnforcer((title, message) -> alerts.offer(System.nanoTime()));
+        TrackingEngine engine = new TrackingEngine(probe, new ClassificationCache(new WindowClassifier()), enforcer,
+                s -> { }, Clock.systemDefaultZone());
+        AdaptivePollInterval interval = TrackingService.pollInterval();
+        engine.start(interval);
+
+        Random random = new Random(7);
+        long[] recent = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            recent[i] = round(probe, alerts, 1000 + random.nextInt(3000));
+        }
+        long[] stable = new long[stableRounds];
+        for (int i = 0; i < stableRounds; i++) {
+            stable[i] = round(probe, alerts, FocusEnforcer.ARMED_WINDOW_MS + 2000 + random.nextInt(3000));
+        }
+        engine.stop();
+
+        System.out.printf("poll bounds %d..%d ms, armed cap %d ms for %d ms after a change, then %d ms%n",
+                interval.minMillis(), interval.maxMillis(), FocusEnforcer.ARMED_MAX_POLL_MS,
+                FocusEnforcer.ARMED_WINDOW_MS, FocusEnforcer.ARMED_IDLE_MAX_POLL_MS);
+        report("change → alert, switch 1-4 s after a change", recent);
+        report("change → alert, window stable past the armed window", stable);
+        System.out.println(enforcer.stats());
+        System.out.println(engine.stats());
+
+        DataVersionWatcher.stop();
+        ActivityLogWriter.shutdown();
+        ConnectionManager.shutdown();
+        Log.shutdown();
+    }
+
+    // Put the neutral app in front, toggle Focus Mode, wait, then switch to the blocked app and time the alert.
+    // Long.MAX_VALUE when no alert came within 10 s
+    private static long round(ManualProbe probe, BlockingQueue<Long> alerts, long waitMillis) throws InterruptedException {
+        probe.foreground = NEUTRAL;
+        SettingsStore.setFocusModeEnabled(false);
+        SettingsStore.setFocusModeEnabled(true);
+        Thread.sleep(waitMillis);
+        alerts.clear();
+        long t0 = System.nanoTime();
+        probe.foreground = BLOCKED;
+        Long alertedAt = alerts.poll(10, TimeUnit.SECONDS);
+        return alertedAt == null ? Long.MAX_VALUE : alertedAt - t0;
+    }
+
+    private static void report(String what, long[] latencies) {
+        if (latencies.length == 0) return;
+        Arrays.sort(latencies);
+        int missed = 0;
+        for (long l : latencies) if (l == Long.MAX_VALUE) missed++;
+        int ok = latencies.length - missed;
+        if (ok > 0) {
+            System.out.printf("%s over %d rounds: p50=%.0fms p90=%.0fms max=%.0fms, missed=%d%n", what, latencies.length,
+                    latencies[(ok - 1) / 2] / 1e6, latencies[(int) ((ok - 1) * 0.9)] / 1e6, latencies[ok - 1] / 1e6, missed);
+        } else {
+            System.out.println(what + ": no alerts in " + latencies.length + " rounds");
+        }
+    }
+
+    /** Probe that reports whatever the bench last put in front. */
+    private static final class ManualProbe implements ForegroundProbe {
+        volatile ForegroundSnapshot foreground = NEUTRAL;
+
+        @Override
+        public ForegroundSnapshot sample() {
+            return foreground;
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -10,15 +11,43 @@ import javafx.scene.control.cell.CheckBoxTableCell;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.util.Pair;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.AbstractMap;
 
 public class FocusModePage extends VBox {
+
+    private static final Log log = Log.get("UI");
+
     private final TableView<AppFocusRow> appsTable = new TableView<>();
     private final ObservableList<AppFocusRow> appsData = FXCollections.observableArrayList();
     private final CheckBox focusToggle = new CheckBox("Enable Focus Mode");
     private final Button saveButton = new Button("Save Changes");  // NEW: Save button for persistence
+    private final Map<Integer, Boolean> loadedBlocked = new HashMap<>();  // Blocked state as last loaded/saved
+    // Scheduled rules (FocusSchedules table)
+    private final ListView<FocusSchedule.Rule> scheduleList = new ListView<>();
+    private final ComboBox<String> scheduleKind = new ComboBox<>(FXCollections.observableArrayList(
+            FocusSchedule.Rule.APP, FocusSchedule.Rule.SITE, FocusSchedule.Rule.CATEGORY));
+    private final TextField scheduleTarget = new TextField();
+    private final TextField scheduleDays = new TextField("Mon-Fri");
+    private final TextField scheduleFrom = new TextField("09:00");
+    private final TextField scheduleTo = new TextField("18:00");
+    // Daily limits (UsageQuotas table)
+    private final ListView<UsageQuotas.Quota> quotaList = new ListView<>();
+    private final ComboBox<String> quotaKind = new ComboBox<>(FXCollections.observableArrayList(
+            UsageQuotas.Quota.SITE, UsageQuotas.Quota.APP));
+    private final TextField quotaTarget = new TextField();
+    private final TextField quotaMinutes = new TextField("30");
+    private final TextField quotaDays = new TextField("daily");
+
+    // Static stores hold these; stop() removes them so a discarded page can be collected
+    private final Runnable scheduleListener = () -> Platform.runLater(this::refreshSchedules);
+    private final SettingsStore.Listener settingsListener = (key, value) -> {
+        if (SettingsStore.FOCUS_MODE_ENABLED.equals(key)) {
+            Platform.runLater(() -> focusToggle.setSelected("true".equals(value)));
+        }
+    };
 
     public FocusModePage() {
         setPadding(new Insets(10));
@@ -33,7 +62,7 @@ public class FocusModePage extends VBox {
         appsBlockedCol.setEditable(true);
         // CHANGED: onEditCommit now only updates local row (no DB call here; defer to save)
         appsBlockedCol.setOnEditCommit(evt -> {
-            System.out.println("[UI DEBUG] Apps local toggle: Row=" + evt.getRowValue() + ", NewVal=" + evt.getNewValue());
+            log.debug("Apps local toggle: Row={}, NewVal={}", evt.getRowValue(), evt.getNewValue());
             AppFocusRow row = evt.getRowValue();
             if (row != null) {
                 row.setBlocked(evt.getNewValue());
@@ -53,7 +82,8 @@ public class FocusModePage extends VBox {
 
         // Focus Mode Toggle (with delayed notification)
         focusToggle.selectedProperty().addListener((obs, oldVal, newVal) -> {
-            DatabaseHelper.setFocusModeEnabled(newVal);
+            if (newVal == SettingsStore.isFocusModeEnabled()) return;  // Programmatic sync, nothing to save
+            SettingsStore.setFocusModeEnabled(newVal);
             if (newVal) {
                 // NEW: Schedule 10s delayed notification on enable
                 NotificationHelper.scheduleDelayedNotification(
@@ -61,62 +91,201 @@ public class FocusModePage extends VBox {
                         "Distracting apps blocked—stay focused for productivity!",
                         10
                 );
-                System.out.println("[UI DEBUG] Focus Mode enabled - 10s notification scheduled");
+                log.debug("Focus Mode enabled - 10s notification scheduled");
+            }
+        });
+
+        // Scheduled rules: active at their times whether or not Focus Mode is switched on
+        scheduleList.setPrefHeight(120);
+        scheduleList.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(FocusSchedule.Rule rule, boolean empty) {
+                super.updateItem(rule, empty);
+                setText(empty || rule == null ? null : rule + (rule.enabled ? "" : "  (off)"));
+            }
+        });
+        scheduleKind.setValue(FocusSchedule.Rule.CATEGORY);
+        scheduleTarget.setPromptText("Steam / youtube.com / Distracting");
+        scheduleDays.setPrefColumnCount(7);
+        scheduleFrom.setPrefColumnCount(4);
+        scheduleTo.setPrefColumnCount(4);
+        Button addSchedule = new Button("Add Rule");
+        addSchedule.setOnAction(e -> addSchedule());
+        Button toggleSchedule = new Button("Enable/Disable");
+        toggleSchedule.setOnAction(e -> {
+            FocusSchedule.Rule rule = scheduleList.getSelectionModel().getSelectedItem();
+            if (rule != null) DatabaseHelper.setFocusScheduleEnabled(rule.id, !rule.enabled);
+            refreshSchedules();
+        });
+        Button deleteSchedule = new Button("Delete");
+        deleteSchedule.setOnAction(e -> {
+            FocusSchedule.Rule rule = scheduleList.getSelectionModel().getSelectedItem();
+            if (rule != null) DatabaseHelper.deleteFocusSchedule(rule.id);
+            refreshSchedules();
+        });
+        HBox scheduleForm = new HBox(6, scheduleKind, scheduleTarget, scheduleDays, scheduleFrom,
+                new Label("–"), scheduleTo, addSchedule);
+        HBox scheduleButtons = new HBox(10, toggleSchedule, deleteSchedule);
+        // Rules edited in another process, and the active set changing at a boundary
+        FocusSchedule.addListener(scheduleListener);
+
+        // Daily limits: an item over its limit is blocked for the rest of the day
+        quotaList.setPrefHeight(90);
+        quotaList.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(UsageQuotas.Quota quota, boolean empty) {
+                super.updateItem(quota, empty);
+                if (empty || quota == null) {
+                    setText(null);
+                } else {
+                    String state = !quota.enabled ? "  (off)" : UsageQuotas.exceeded().contains(quota) ? "  (reached today)" : "";
+                    setText(quota + state);
+                }
             }
         });
+        quotaKind.setValue(UsageQuotas.Quota.SITE);
+        quotaTarget.setPromptText("youtube.com / Steam");
+        quotaMinutes.setPrefColumnCount(4);
+        quotaDays.setPrefColumnCount(7);
+        Button addQuota = new Button("Add Limit");
+        addQuota.setOnAction(e -> addQuota());
+        Button toggleQuota = new Button("Enable/Disable");
+        toggleQuota.setOnAction(e -> {
+            UsageQuotas.Quota quota = quotaList.getSelectionModel().getSelectedItem();
+            if (quota != null) DatabaseHelper.setUsageQuotaEnabled(quota.id, !quota.enabled);
+            refreshQuotas();
+        });
+        Button deleteQuota = new Button("Delete");
+        deleteQuota.setOnAction(e -> {
+            UsageQuotas.Quota quota = quotaList.getSelectionModel().getSelectedItem();
+            if (quota != null) DatabaseHelper.deleteUsageQuota(quota.id);
+            refreshQuotas();
+        });
+        HBox quotaForm = new HBox(6, quotaKind, quotaTarget, quotaMinutes, new Label("min/day on"), quotaDays, addQuota);
+        HBox quotaButtons = new HBox(10, toggleQuota, deleteQuota);
 
         getChildren().addAll(
                 title,
                 new Label("Select distracting apps:"),
                 appsTable,
                 buttonBox,  // NEW: Add save button
-                focusToggle
+                focusToggle,
+                new Label("Scheduled rules (e.g. category Distracting, Mon-Fri, 09:00–18:00):"),
+                scheduleList,
+                scheduleButtons,
+                scheduleForm,
+                new Label("Daily limits (e.g. site youtube.com, 30 min/day):"),
+                quotaList,
+                quotaButtons,
+                quotaForm
         );
+        // Keep the toggle in sync when Focus Mode is changed elsewhere (tracker process, another window)
+        SettingsStore.addListener(settingsListener);
         refresh();
     }
 
-    // NEW: Save changes - iterate tables, update DB based on checkbox states
+    // Save changes - diff checkbox states against what was loaded, apply in one transaction
     private void saveChanges() {
-        System.out.println("[UI DEBUG] Saving changes to DB...");
-        int appsSaved = 0;
-
-        // Save apps
+        log.debug("Saving changes to DB...");
+        Map<Integer, Boolean> changes = new LinkedHashMap<>();
         for (AppFocusRow row : appsData) {
-            int id = row.getId();
             boolean shouldBlock = row.blockedProperty().get();
-            boolean currentlyBlocked = DatabaseHelper.isAppBlocked(id);
-            if (shouldBlock != currentlyBlocked) {
-                if (shouldBlock) {
-                    DatabaseHelper.blockApp(id);
-                } else {
-                    DatabaseHelper.unblockApp(id);
-                }
-                appsSaved++;
+            if (shouldBlock != loadedBlocked.getOrDefault(row.getId(), false)) {
+                changes.put(row.getId(), shouldBlock);
+            }
+        }
+
+        int appsSaved = DatabaseHelper.setAppsBlocked(changes);
+        if (appsSaved < 0) {
+            refresh();  // Nothing was committed; show the DB state again
+            NotificationHelper.showNotification("Save Failed", "Focus Mode blocks could not be updated.");
+            return;
+        }
+        loadedBlocked.putAll(changes);
+        log.info("Saved {} app changes", changes.size());
+        NotificationHelper.showNotification("Changes Saved", "Focus Mode blocks updated (" + changes.size() + " changes).");
+    }
+
+    private void addSchedule() {
+        String kind = scheduleKind.getValue();
+        String target = scheduleTarget.getText().trim();
+        // Categories can be given by name, like in the Apps page
+        if (FocusSchedule.Rule.CATEGORY.equals(kind)) {
+            if ("productive".equalsIgnoreCase(target)) target = "1";
+            else if ("distracting".equalsIgnoreCase(target)) target = "2";
+        }
+        try {
+            int id = DatabaseHelper.addFocusSchedule(kind, target, FocusSchedule.parseDays(scheduleDays.getText()),
+                    FocusSchedule.parseTime(scheduleFrom.getText()), FocusSchedule.parseTime(scheduleTo.getText()), null);
+            if (id < 0) {
+                NotificationHelper.showNotification("Save Failed", "The focus schedule could not be saved.");
+                return;
+            }
+            scheduleTarget.clear();
+            refreshSchedules();
+        } catch (IllegalArgumentException ex) {
+            NotificationHelper.showNotification("Invalid Rule", ex.getMessage());
+        }
+    }
+
+    private void addQuota() {
+        try {
+            int minutes;
+            try {
+                minutes = Integer.parseInt(quotaMinutes.getText().trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("minutes must be a number");
             }
+            int id = DatabaseHelper.addUsageQuota(quotaKind.getValue(), quotaTarget.getText(), minutes * 60,
+                    FocusSchedule.parseDays(quotaDays.getText()));
+            if (id < 0) {
+                NotificationHelper.showNotification("Save Failed", "The daily limit could not be saved.");
+                return;
+            }
+            quotaTarget.clear();
+            refreshQuotas();
+        } catch (IllegalArgumentException ex) {
+            NotificationHelper.showNotification("Invalid Limit", ex.getMessage());
         }
+    }
 
-        System.out.println("[UI DEBUG] Saved " + appsSaved + " app changes");
-        refresh();  // Reload from DB to confirm persistence
-        NotificationHelper.showNotification("Changes Saved", "Focus Mode blocks updated (" + appsSaved + " changes).");
+    private void refreshQuotas() {
+        quotaList.setItems(FXCollections.observableArrayList(UsageQuotas.current().quotas));
+    }
+
+    private void refreshSchedules() {
+        FocusSchedule.Active now = FocusSchedule.active();
+        scheduleList.setItems(FXCollections.observableArrayList(FocusSchedule.rules()));
+        log.debug("Loaded {} focus schedules ({} active now)", scheduleList.getItems().size(), now.rules.size());
     }
 
     public void refresh() {
-        System.out.println("[UI DEBUG] Refreshing Focus Mode - querying DB...");
+        log.debug("Refreshing Focus Mode - querying DB...");
         // Refresh apps
         appsData.clear();
+        loadedBlocked.clear();
         List<Map.Entry<Integer, Pair<String, Boolean>>> apps = DatabaseHelper.getAppsWithBlockedStatus();
-        System.out.println("[UI DEBUG] Loaded " + apps.size() + " apps from DB");
+        log.debug("Loaded {} apps from DB", apps.size());
         for (Map.Entry<Integer, Pair<String, Boolean>> e : apps) {
             int id = e.getKey();
             String name = e.getValue().getKey();
             boolean blocked = e.getValue().getValue();
-            System.out.println("[UI DEBUG] App: id=" + id + ", name='" + name + "', blocked=" + blocked);
+            log.debug("App: id={}, name='{}', blocked={}", id, name, blocked);
             appsData.add(new AppFocusRow(id, name, blocked));
+            loadedBlocked.put(id, blocked);
         }
         appsTable.setItems(appsData);
         // Refresh toggle
-        focusToggle.setSelected(DatabaseHelper.isFocusModeEnabled());
-        System.out.println("[UI DEBUG] Toggle set to: " + DatabaseHelper.isFocusModeEnabled());
+        boolean enabled = SettingsStore.isFocusModeEnabled();
+        focusToggle.setSelected(enabled);
+        log.debug("Toggle set to: {}", enabled);
+        refreshSchedules();
+        refreshQuotas();
+    }
+
+    public void stop() {
+        FocusSchedule.removeListener(scheduleListener);
+        SettingsStore.removeListener(settingsListener);
     }
 
     // Inner classes for table rows
@@ -0,0 +1,443 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Recurring Focus Mode rules from the FocusSchedules table ("block category 2 09:00–18:00 Mon–Fri").
+ * - The rules are compiled into an immutable weekly Index: sorted boundary minutes plus, for each segment
+ *   between two boundaries, the precomputed set of what is blocked; activeAt() is one binary search
+ * - A scheduler thread wakes up exactly at the next boundary and publishes that segment's Active set,
+ *   so polls read active() (one volatile read) and never query or search
+ * - DatabaseHelper's schedule methods call reload(); edits from another process arrive via DataVersionWatcher
+ * - Times are local wall-clock minutes; each wakeup recomputes from the clock, so DST and clock changes
+ *   are picked up (waits are capped at MAX_WAIT_MINUTES to resync after sleep)
+ */
+public class FocusSchedule {
+
+    private static final Log log = Log.get("FocusSchedule");
+
+    // -------------------- CONFIGURABLE SETTINGS --------------------
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    private static final int MAX_WAIT_MINUTES = 15;
+    public static final int ALL_DAYS = 0x7F;     // Bit 0 = Monday .. bit 6 = Sunday
+    public static final int WEEKDAYS = 0x1F;
+
+    private static final AtomicReference<Index> index = new AtomicReference<>();
+    private static final AtomicReference<Active> active = new AtomicReference<>(Active.NONE);
+    private static final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService scheduler;
+    private static ScheduledFuture<?> wakeup;
+
+    static {
+        DataVersionWatcher.addListener(FocusSchedule::reload);
+    }
+
+    /** What scheduled rules block right now. Never null; Active.NONE outside all rules. */
+    public static Active active() {
+        if (index.get() == null) reload();
+        return active.get();
+    }
+
+    /** All rules, enabled or not, in id order (from the compiled index; no query). */
+    public static List<Rule> rules() {
+        Index idx = index.get();
+        if (idx == null) idx = reload();
+        return Collections.unmodifiableList(idx.rules);
+    }
+
+    /** Called on the thread that published a different Active set (a boundary passed or the rules changed). */
+    public static void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /** Re-read the rules table, rebuild the index and re-arm the boundary wakeup. Keeps the old index on error. */
+    public static synchronized Index reload() {
+        List<Rule> rules = new ArrayList<>();
+        try (Connection conn = ConnectionManager.read();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT schedule_id, target_kind, target, days, start_minute, end_minute, enabled, label " +
+                             "FROM FocusSchedules ORDER BY schedule_id")) {
+            while (rs.next()) {
+                try {
+                    rules.add(new Rule(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4),
+                            rs.getInt(5), rs.getInt(6), rs.getBoolean(7), rs.getString(8)));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping focus schedule {}: {}", rs.getInt(1), e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Reload failed, keeping the previous schedule", e);
+            Index old = index.get();
+            if (old != null) return old;
+        }
+        Index old = index.get();
+        // Other processes commit activity rows all the time; only rebuild when the rules really changed
+        if (old != null && old.rules.equals(rules)) return old;
+        Index idx = Index.compile(rules);
+        index.set(idx);
+        log.debug("Compiled {} schedules into {} segments", rules.size(), idx.segmentCount());
+        advance();
+        return idx;
+    }
+
+    // -------------------- BOUNDARY WAKEUPS --------------------
+    public static synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "focus-schedule");
+            t.setDaemon(true);
+            return t;
+        });
+        if (index.get() == null) reload();
+        else advance();
+    }
+
+    public static synchronized void stop() {
+        if (wakeup != null) wakeup.cancel(false);
+        wakeup = null;
+        if (scheduler != null) scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    // Publish the segment we are in now and sleep until the next boundary
+    private static synchronized void advance() {
+        Index idx = index.get();
+        if (idx == null) return;
+        ZonedDateTime now = ZonedDateTime.now();
+        int minute = minuteOfWeek(now);
+        publish(idx.activeAt(minute));
+
+        if (scheduler == null) return;
+        if (wakeup != null) wakeup.cancel(false);
+        int wait = idx.minutesUntilNextBoundary(minute);
+        ZonedDateTime at = now.truncatedTo(ChronoUnit.MINUTES).plusMinutes(Math.min(wait, MAX_WAIT_MINUTES));
+        long delayMillis = Math.max(0, Duration.between(now, at).toMillis());
+        wakeup = scheduler.schedule(FocusSchedule::onWakeup, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void onWakeup() {
+        try {
+            advance();
+        } catch (Throwable t) {
+            // Never allow the schedule thread to die
+            log.error("Schedule wake-up failed", t);
+        }
+    }
+
+    private static void publish(Active next) {
+        Active prev = active.getAndSet(next);
+        if (prev == next) return;
+        log.info("Scheduled focus rules now active: {}", next.rules.isEmpty() ? "none" : next.describe());
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (Throwable t) {
+                log.error("Schedule listener failed", t);
+            }
+        }
+    }
+
+    static int minuteOfWeek(ZonedDateTime t) {
+        return (t.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY + t.getHour() * 60 + t.getMinute();
+    }
+
+    // -------------------- RULE --------------------
+    /** One row of FocusSchedules. end <= start means the rule runs past midnight into the next day. */
+    public static final class Rule {
+        public static final String APP = "app";
+        public static final String SITE = "site";
+        public static final String CATEGORY = "category";
+
+        public final int id;
+        public final String kind;
+        public final String target;
+        public final int days;
+        public final int startMinute;
+        public final int endMinute;
+        public final boolean enabled;
+        public final String label;
+
+        public Rule(int id, String kind, String target, int days, int startMinute, int endMinute,
+                    boolean enabled, String label) {
+            if (!APP.equals(kind) && !SITE.equals(kind) && !CATEGORY.equals(kind)) {
+                throw new IllegalArgumentException("unknown target kind '" + kind + "'");
+            }
+            if (target == null || target.trim().isEmpty()) throw new IllegalArgumentException("empty target");
+            if (CATEGORY.equals(kind)) {
+                try {
+                    Integer.parseInt(target.trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("category target must be a category id");
+                }
+            }
+            if ((days & ALL_DAYS) == 0) throw new IllegalArgumentException("no days selected");
+            if (startMinute < 0 || startMinute >= MINUTES_PER_DAY || endMinute < 0 || endMinute > MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("times must be within a day");
+            }
+            this.id = id;
+            this.kind = kind;
+            this.target = target.trim();
+            this.days = days & ALL_DAYS;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+            this.enabled = enabled;
+            this.label = label;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Rule)) return false;
+            Rule r = (Rule) o;
+            return id == r.id && days == r.days && startMinute == r.startMinute && endMinute == r.endMinute
+                    && enabled == r.enabled && kind.equals(r.kind) && target.equals(r.target)
+                    && Objects.equals(label, r.label);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, kind, target, days, startMinute, endMinute, enabled, label);
+        }
+
+        @Override
+        public String toString() {
+            String name = label != null && !label.isEmpty() ? label + ": " : "";
+            return name + kind + " " + target + " " + formatDays(days) + " "
+                    + formatTime(startMinute) + "–" + formatTime(endMinute);
+        }
+    }
+
+    // -------------------- ACTIVE SET --------------------
+    /** Immutable: everything blocked during one segment of the week. */
+    public static final class Active {
+        public static final Active NONE = new Active(Collections.emptyList());
+
+        public final List<Rule> rules;
+        private final Set<String> apps = new HashSet<>();        // Lower-cased app names
+        private final Set<Integer> categories = new HashSet<>();
+        private final DomainTrie sites;
+
+        Active(List<Rule> rules) {
+            this.rules = Collections.unmodifiableList(rules);
+            List<String> hosts = new ArrayList<>();
+            for (Rule r : rules) {
+                if (Rule.APP.equals(r.kind)) apps.add(r.target.toLowerCase(Locale.ROOT));
+                else if (Rule.SITE.equals(r.kind)) hosts.add(Blocklist.hostOf(r.target));
+                else categories.add(Integer.parseInt(r.target));
+            }
+            sites = new DomainTrie(hosts);
+        }
+
+        public boolean isEmpty() {
+            return rules.isEmpty();
+        }
+
+        /** Whether any rule matches on category, i.e. blocks() needs the item's stored category. */
+        public boolean hasCategoryRules() {
+            return !categories.isEmpty();
+        }
+
+        /** Blocked by name, by host (a blocked domain also blocks its subdomains) or by category. */
+        public boolean blocks(String item, boolean website, int category) {
+            if (rules.isEmpty() || item == null) return false;
+            if (categories.contains(category)) return true;
+            if (website) {
+                if (sites.size() == 0) return false;
+                int start = item.indexOf("://");
+                start = start >= 0 ? start + 3 : 0;
+                return sites.matches(item, start, Blocklist.hostEnd(item, start));
+            }
+            return !apps.isEmpty() && apps.contains(item.toLowerCase(Locale.ROOT));
+        }
+
+        String describe() {
+            StringBuilder sb = new StringBuilder();
+            for (Rule r : rules) {
+                if (sb.length() > 0) sb.append("; ");
+                sb.append(r);
+            }
+            return sb.toString();
+        }
+    }
+
+    // -------------------- INTERVAL INDEX --------------------
+    /**
+     * Weekly timeline cut at every rule boundary; segment i covers [boundaries[i], boundaries[i + 1]).
+     * Each segment keeps the bitset of rules covering it; its Active set is built the first time it is asked for.
+     */
+    public static final class Index {
+        private final List<Rule> rules;
+        private final int[] boundaries;   // Sorted minute-of-week values, starting with 0
+        private final BitSet[] cover;
+        private final Active[] segments;  // Filled lazily; Active is immutable, so racing builders are harmless
+
+        private Index(List<Rule> rules, int[] boundaries, BitSet[] cover) {
+            this.rules = rules;
+            this.boundaries = boundaries;
+            this.cover = cover;
+            this.segments = new Active[boundaries.length];
+        }
+
+        static Index compile(List<Rule> rules) {
+            // Every enabled rule becomes one interval per selected day; overnight and Sunday-night spans wrap
+            List<int[]> intervals = new ArrayList<>();   // {start, end, rule index}
+            TreeSet<Integer> cuts = new TreeSet<>();
+            cuts.add(0);
+            for (int i = 0; i < rules.size(); i++) {
+                Rule r = rules.get(i);
+                if (!r.enabled) continue;
+                int length = r.endMinute > r.startMinute ? r.endMinute - r.startMinute
+                        : r.endMinute + MINUTES_PER_DAY - r.startMinute;
+                for (int day = 0; day < 7; day++) {
+                    if ((r.days & (1 << day)) == 0) continue;
+                    int start = day * MINUTES_PER_DAY + r.startMinute;
+                    int end = start + length;
+                    if (end <= MINUTES_PER_WEEK) {
+                        intervals.add(new int[]{start, end, i});
+                    } else {
+                        intervals.add(new int[]{start, MINUTES_PER_WEEK, i});
+                        intervals.add(new int[]{0, end - MINUTES_PER_WEEK, i});
+                    }
+                }
+            }
+            for (int[] iv : intervals) {
+                cuts.add(iv[0]);
+                if (iv[1] < MINUTES_PER_WEEK) cuts.add(iv[1]);
+            }
+            int[] bounds = cuts.stream().mapToInt(Integer::intValue).toArray();
+
+            // Sweep the cuts once: rules end (then start) at each cut; each segment snapshots the running set
+            List<List<Integer>> starts = new ArrayList<>();
+            List<List<Integer>> ends = new ArrayList<>();
+            for (int s = 0; s < bounds.length; s++) {
+                starts.add(new ArrayList<>());
+                ends.add(new ArrayList<>());
+            }
+            for (int[] iv : intervals) {
+                starts.get(Arrays.binarySearch(bounds, iv[0])).add(iv[2]);
+                if (iv[1] < MINUTES_PER_WEEK) ends.get(Arrays.binarySearch(bounds, iv[1])).add(iv[2]);
+            }
+            BitSet running = new BitSet();
+            BitSet[] cover = new BitSet[bounds.length];
+            for (int s = 0; s < bounds.length; s++) {
+                for (int rule : ends.get(s)) running.clear(rule);
+                for (int rule : starts.get(s)) running.set(rule);
+                cover[s] = (BitSet) running.clone();
+            }
+            return new Index(rules, bounds, cover);
+        }
+
+        /** Blocked set at a minute of the week (0 = Monday 00:00). O(log n). */
+        public Active activeAt(int minuteOfWeek) {
+            int i = Arrays.binarySearch(boundaries, minuteOfWeek);
+            if (i < 0) i = -i - 2;   // Insertion point - 1: the segment that contains it
+            Active a = segments[i];
+            if (a == null) segments[i] = a = build(cover[i]);
+            return a;
+        }
+
+        private Active build(BitSet set) {
+            if (set.isEmpty()) return Active.NONE;
+            List<Rule> on = new ArrayList<>();
+            for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) on.add(rules.get(i));
+            return new Active(on);
+        }
+
+        /** Minutes from minuteOfWeek to the next boundary (wrapping to next week), at least 1. */
+        int minutesUntilNextBoundary(int minuteOfWeek) {
+            int i = Arrays.binarySearch(boundaries, minuteOfWeek + 1);
+            if (i < 0) i = -i - 1;
+            int next = i < boundaries.length ? boundaries[i] : MINUTES_PER_WEEK;
+            return next - minuteOfWeek;
+        }
+
+        public int segmentCount() {
+            return segments.length;
+        }
+    }
+
+    // -------------------- PARSING / FORMATTING --------------------
+    /** "Mon-Fri", "Sat,Sun", "weekdays", "daily" → day mask. */
+    public static int parseDays(String text) {
+        String s = text.trim().toLowerCase(Locale.ROOT);
+        if (s.equals("daily") || s.equals("every day") || s.equals("mon-sun")) return ALL_DAYS;
+        if (s.equals("weekdays")) return WEEKDAYS;
+        if (s.equals("weekends")) return ALL_DAYS & ~WEEKDAYS;
+        int mask = 0;
+        for (String part : s.split(",")) {
+            String[] range = part.trim().split("-");
+            if (range.length == 0 || range.length > 2) throw new IllegalArgumentException("bad days '" + part + "'");
+            int from = dayIndex(range[0]);
+            int to = range.length == 2 ? dayIndex(range[1]) : from;
+            for (int d = from; ; d = (d + 1) % 7) {
+                mask |= 1 << d;
+                if (d == to) break;
+            }
+        }
+        return mask;
+    }
+
+    private static int dayIndex(String name) {
+        String n = name.trim();
+        for (DayOfWeek d : DayOfWeek.values()) {
+            if (n.length() >= 2 && d.name().toLowerCase(Locale.ROOT).startsWith(n)) return d.getValue() - 1;
+        }
+        throw new IllegalArgumentException("unknown day '" + name + "'");
+    }
+
+    public static String formatDays(int mask) {
+        if (mask == ALL_DAYS) return "daily";
+        if (mask == WEEKDAYS) return "Mon-Fri";
+        StringBuilder sb = new StringBuilder();
+        for (int d = 0; d < 7; d++) {
+            if ((mask & (1 << d)) == 0) continue;
+            if (sb.length() > 0) sb.append(',');
+            String name = DayOfWeek.of(d + 1).name();
+            sb.append(name.charAt(0)).append(name.substring(1, 3).toLowerCase(Locale.ROOT));
+        }
+        return sb.toString();
+    }
+
+    /** "09:30" → 570. "24:00" is allowed as an end time. */
+    public static int parseTime(String text) {
+        String[] hm = text.trim().split(":");
+        try {
+            int h = Integer.parseInt(hm[0]);
+            int m = hm.length > 1 ? Integer.parseInt(hm[1]) : 0;
+            if (hm.length > 2 || h < 0 || h > 24 || m < 0 || m > 59 || (h == 24 && m > 0)) throw new NumberFormatException();
+            return h * 60 + m;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad time '" + text + "', expected HH:mm");
+        }
+    }
+
+    public static String formatTime(int minute) {
+        return String.format("%02d:%02d", minute / 60, minute % 60);
+    }
+}
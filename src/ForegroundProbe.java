@@ -0,0 +1,11 @@
+/**
+ * Source of foreground samples for the tracking pipeline.
+ * - JnaForegroundProbe: the real Windows foreground window (User32/Psapi)
+ * - ReplayForegroundProbe: samples recorded to a file, for reproducible runs on any OS
+ * - SyntheticForegroundProbe: generated switches at a configurable rate, for load tests
+ * Implementations are called from a single tracking thread and must not return null.
+ */
+public interface ForegroundProbe {
+
+    ForegroundSnapshot sample();
+}
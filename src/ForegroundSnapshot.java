@@ -0,0 +1,29 @@
+/**
+ * What was in the foreground at one instant: one immutable sample from a ForegroundProbe.
+ * exe is the module base name as reported (e.g. "idea64.exe"), or null if it could not be read.
+ */
+public final class ForegroundSnapshot {
+
+    public static final ForegroundSnapshot NONE = new ForegroundSnapshot(0, 0, null, "Unknown");
+
+    public final long hwnd;
+    public final int pid;
+    public final String exe;
+    public final String title;
+
+    public ForegroundSnapshot(long hwnd, int pid, String exe, String title) {
+        this.hwnd = hwnd;
+        this.pid = pid;
+        this.exe = exe;
+        this.title = title != null ? title : "";
+    }
+
+    public boolean isNone() {
+        return hwnd == 0 && exe == null;
+    }
+
+    @Override
+    public String toString() {
+        return "ForegroundSnapshot{hwnd=" + hwnd + ", pid=" + pid + ", exe=" + exe + ", title='" + title + "'}";
+    }
+}
@@ -2,9 +2,6 @@ import javafx.geometry.Insets;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
-import javafx.util.Pair;
-
-import java.time.LocalDate;
 
 public class InsightsPage extends VBox {
     private final Label info = new Label();
@@ -19,12 +16,12 @@ public class InsightsPage extends VBox {
     }
 
     private void computeTodayInsight() {
-        Pair<Integer,Integer> p = DatabaseHelper.queryProductiveVsTotalToday();
-        int productive = p.getKey();
-        int total = p.getValue();
+        TodayUsage.Snapshot today = TodayUsage.current();
+        int productive = today.productiveSeconds;
+        int total = today.totalSeconds;
         int score = (total == 0) ? 0 : (int)((productive * 100L) / total);
         String notes = (score > 70) ? "Great focus today!" : (score > 40) ? "Decent" : "Try to reduce distractions";
-        DatabaseHelper.insertInsight(LocalDate.now(), total, productive, score, notes);
+        DatabaseHelper.insertInsight(today.day, total, productive, score, notes);
         info.setText("Inserted insight: score=" + score + " notes=" + notes);
     }
 
@@ -0,0 +1,205 @@
+import com.sun.jna.Native;
+
+/**
+ * Windows foreground probe: window handle, title, pid and exe in one sample.
+ * - Direct-mapped natives with primitive handles, so a call creates no JNA wrapper objects
+ * - Per-thread buffers are reused; pid is cached per window and exe per pid
+ * - An unchanged foreground returns the previous snapshot, so the steady-state poll allocates nothing
+ * Steady state costs two native calls (GetForegroundWindow, GetWindowTextW); a switch adds the rest.
+ * The native libraries are loaded on first use, so the class can be referenced on any OS.
+ * Handles are pointer-sized: a 64-bit JVM uses the long bindings, a 32-bit one the int bindings.
+ */
+public class JnaForegroundProbe implements ForegroundProbe {
+
+    private static final Log log = Log.get("ForegroundProbe");
+    private static final boolean WIDE_HANDLES = pointerSize() == 8;
+    private static final JnaForegroundProbe SHARED = new JnaForegroundProbe();
+
+    private static final int TITLE_CHARS = 1024;
+    private static final int EXE_CHARS = 512;
+    private static final int PROCESS_QUERY_INFORMATION = 0x0400;
+    private static final int PROCESS_VM_READ = 0x0010;
+
+    // -------------------- NATIVE BINDINGS (one set for the whole app) --------------------
+    static final class User32Direct {
+        static {
+            Native.register(User32Direct.class, "user32");
+        }
+        static native long GetForegroundWindow();
+        static native int GetWindowTextW(long hWnd, char[] lpString, int nMaxCount);
+        static native int GetWindowThreadProcessId(long hWnd, int[] lpdwProcessId);
+    }
+
+    static final class Kernel32Direct {
+        static {
+            Native.register(Kernel32Direct.class, "kernel32");
+        }
+        static native long OpenProcess(int dwDesiredAccess, boolean bInheritHandle, int dwProcessId);
+        static native boolean CloseHandle(long hObject);
+    }
+
+    static final class PsapiDirect {
+        static {
+            Native.register(PsapiDirect.class, "psapi");
+        }
+        static native int GetModuleBaseNameW(long hProcess, long hModule, char[] lpBaseName, int nSize);
+    }
+
+    // Same functions with 32-bit handles, registered only on a 32-bit JVM
+    static final class User32Direct32 {
+        static {
+            Native.register(User32Direct32.class, "user32");
+        }
+        static native int GetForegroundWindow();
+        static native int GetWindowTextW(int hWnd, char[] lpString, int nMaxCount);
+        static native int GetWindowThreadProcessId(int hWnd, int[] lpdwProcessId);
+    }
+
+    static final class Kernel32Direct32 {
+        static {
+            Native.register(Kernel32Direct32.class, "kernel32");
+        }
+        static native int OpenProcess(int dwDesiredAccess, boolean bInheritHandle, int dwProcessId);
+        static native boolean CloseHandle(int hObject);
+    }
+
+    static final class PsapiDirect32 {
+        static {
+            Native.register(PsapiDirect32.class, "psapi");
+        }
+        static native int GetModuleBaseNameW(int hProcess, int hModule, char[] lpBaseName, int nSize);
+    }
+
+    // Handles are kept as long either way; a 32-bit handle is widened without sign extension
+    private static long foregroundWindow() {
+        return WIDE_HANDLES ? User32Direct.GetForegroundWindow() : Integer.toUnsignedLong(User32Direct32.GetForegroundWindow());
+    }
+
+    private static int windowText(long hWnd, char[] buf, int max) {
+        return WIDE_HANDLES ? User32Direct.GetWindowTextW(hWnd, buf, max) : User32Direct32.GetWindowTextW((int) hWnd, buf, max);
+    }
+
+    private static void windowProcessId(long hWnd, int[] pidOut) {
+        if (WIDE_HANDLES) User32Direct.GetWindowThreadProcessId(hWnd, pidOut);
+        else User32Direct32.GetWindowThreadProcessId((int) hWnd, pidOut);
+    }
+
+    private static long openProcess(int access, int pid) {
+        return WIDE_HANDLES ? Kernel32Direct.OpenProcess(access, false, pid)
+                : Integer.toUnsignedLong(Kernel32Direct32.OpenProcess(access, false, pid));
+    }
+
+    private static void closeHandle(long handle) {
+        if (WIDE_HANDLES) Kernel32Direct.CloseHandle(handle);
+        else Kernel32Direct32.CloseHandle((int) handle);
+    }
+
+    private static int moduleBaseName(long process, char[] buf, int max) {
+        return WIDE_HANDLES ? PsapiDirect.GetModuleBaseNameW(process, 0, buf, max)
+                : PsapiDirect32.GetModuleBaseNameW((int) process, 0, buf, max);
+    }
+
+    // -------------------- PER-THREAD STATE --------------------
+    private static final class State {
+        final char[] titleBuf = new char[TITLE_CHARS];
+        final char[] exeBuf = new char[EXE_CHARS];
+        final int[] pidOut = new int[1];
+        long lastHwnd;            // hwnd → pid never changes for a window's lifetime
+        int lastPid;
+        int exePid;               // pid → exe, invalidated when the pid changes
+        boolean exeKnown;         // Also caches "cannot open" (elevated processes) so we don't retry every tick
+        String exe;
+        ForegroundSnapshot last = ForegroundSnapshot.NONE;
+        long nativeCalls;
+    }
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private JnaForegroundProbe() {
+        if (!WIDE_HANDLES) log.info("32-bit JVM, using 32-bit window handles");
+    }
+
+    // Runs from static init, so it must not throw; JNA failing to load shows up in sample() instead
+    private static int pointerSize() {
+        try {
+            return Native.POINTER_SIZE;
+        } catch (Throwable t) {
+            return "32".equals(System.getProperty("sun.arch.data.model")) ? 4 : 8;
+        }
+    }
+
+    /** One probe is enough for the whole process; all mutable state is per thread. */
+    public static JnaForegroundProbe shared() {
+        return SHARED;
+    }
+
+    @Override
+    public ForegroundSnapshot sample() {
+        State st = STATE.get();
+        try {
+            long hwnd = foregroundWindow();
+            st.nativeCalls++;
+            if (hwnd == 0) return ForegroundSnapshot.NONE;
+
+            int titleLen = windowText(hwnd, st.titleBuf, st.titleBuf.length);
+            st.nativeCalls++;
+            titleLen = Math.max(0, Math.min(titleLen, st.titleBuf.length - 1));
+
+            if (hwnd != st.lastHwnd) {
+                st.pidOut[0] = 0;
+                windowProcessId(hwnd, st.pidOut);
+                st.nativeCalls++;
+                st.lastHwnd = hwnd;
+                st.lastPid = st.pidOut[0];
+            }
+            int pid = st.lastPid;
+            if (pid != st.exePid || !st.exeKnown) {
+                st.exe = exeName(st, pid);
+                st.exePid = pid;
+                st.exeKnown = true;
+            }
+
+            ForegroundSnapshot last = st.last;
+            if (last.hwnd == hwnd && last.pid == pid && last.exe == st.exe && sameChars(last.title, st.titleBuf, titleLen)) {
+                return last;
+            }
+            String title = sameChars(last.title, st.titleBuf, titleLen) ? last.title : new String(st.titleBuf, 0, titleLen);
+            st.last = new ForegroundSnapshot(hwnd, pid, st.exe, title);
+            return st.last;
+        } catch (Throwable t) {
+            log.error("Foreground probe failed", t);
+            return ForegroundSnapshot.NONE;
+        }
+    }
+
+    /** Native calls made by this thread's probe so far (for comparing poll cost). */
+    public static long nativeCalls() {
+        return STATE.get().nativeCalls;
+    }
+
+    // Module base name of the process, or null if it cannot be opened
+    private static String exeName(State st, int pid) {
+        if (pid == 0) return null;
+        long process = openProcess(PROCESS_QUERY_INFORMATION | PROCESS_VM_READ, pid);
+        st.nativeCalls++;
+        if (process == 0) return null;
+        try {
+            int len = moduleBaseName(process, st.exeBuf, st.exeBuf.length);
+            st.nativeCalls++;
+            if (len <= 0) return null;
+            // Same exe as before (e.g. a new chrome.exe renderer pid): keep the existing String
+            return sameChars(st.exe, st.exeBuf, len) ? st.exe : new String(st.exeBuf, 0, len);
+        } finally {
+            closeHandle(process);
+            st.nativeCalls++;
+        }
+    }
+
+    private static boolean sameChars(String s, char[] buf, int len) {
+        if (s == null || s.length() != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (s.charAt(i) != buf[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable Aho-Corasick automaton over a fixed set of keywords, each mapped to a value.
+ * - One left-to-right pass finds every keyword, however many there are
+ * - longest() returns the value of the longest keyword found; ties go to the one that starts first
+ * - suffixes() builds a matcher over reversed keywords; endsWithLength() then walks only the tail of the text
+ * - Matching is case-insensitive (keywords are stored lower-case) and never allocates
+ */
+public final class KeywordMatcher<V> {
+
+    private final Node<V> root = new Node<>(0);
+    @SuppressWarnings("unchecked")
+    private final Node<V>[] rootAscii = (Node<V>[]) new Node<?>[128];  // Most steps fall back to the root; skip its search
+    private final boolean reversed;
+    private final int size;
+
+    public KeywordMatcher(Map<String, V> keywords) {
+        this(keywords, false);
+    }
+
+    private KeywordMatcher(Map<String, V> keywords, boolean reversed) {
+        this.reversed = reversed;
+        int n = 0;
+        for (Map.Entry<String, V> e : keywords.entrySet()) {
+            if (e.getKey() == null || e.getKey().isEmpty()) continue;
+            String keyword = e.getKey().toLowerCase(Locale.ROOT);
+            insert(reversed ? new StringBuilder(keyword).reverse().toString() : keyword, e.getValue());
+            n++;
+        }
+        size = n;
+        link();
+    }
+
+    /** Matcher for endsWithLength() only: the trie holds the keywords back to front. */
+    public static KeywordMatcher<Boolean> suffixes(Collection<String> suffixes) {
+        Map<String, Boolean> map = new LinkedHashMap<>();
+        for (String s : suffixes) map.put(s, Boolean.TRUE);
+        return new KeywordMatcher<>(map, true);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Value of the longest keyword occurring anywhere in text, or null. */
+    public V longest(CharSequence text) {
+        return longest(text, 0, text.length());
+    }
+
+    /** Same as {@link #longest(CharSequence)} for the region text[from, to). */
+    public V longest(CharSequence text, int from, int to) {
+        if (reversed) throw new IllegalStateException("Suffix matcher; use endsWithLength()");
+        Node<V> node = root;
+        Node<V> best = null;
+        for (int i = from; i < to; i++) {
+            node = step(node, Character.toLowerCase(text.charAt(i)));
+            Node<V> out = node.output;
+            if (out != null && (best == null || out.depth > best.depth)) best = out;
+        }
+        return best == null ? null : best.value;
+    }
+
+    /** Length of the longest suffix keyword that text[from, to) ends with, or 0. Needs suffixes(). */
+    public int endsWithLength(CharSequence text, int from, int to) {
+        if (!reversed) throw new IllegalStateException("Not a suffix matcher; build it with suffixes()");
+        Node<V> node = root;
+        int best = 0;
+        for (int i = to - 1; i >= from; i--) {
+            node = node.child(Character.toLowerCase(text.charAt(i)));
+            if (node == null) break;
+            if (node.terminal) best = node.depth;
+        }
+        return best;
+    }
+
+    // -------------------- INTERNALS --------------------
+    private Node<V> step(Node<V> node, char c) {
+        while (node != root) {
+            Node<V> next = node.child(c);
+            if (next != null) return next;
+            node = node.fail;
+        }
+        Node<V> next = c < 128 ? rootAscii[c] : root.child(c);
+        return next != null ? next : root;
+    }
+
+    private void insert(String keyword, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < keyword.length(); i++) node = node.getOrAdd(keyword.charAt(i));
+        node.terminal = true;
+        node.value = value;
+    }
+
+    // Breadth-first: failure link = longest proper suffix that is also a trie path;
+    // output = this node if it ends a keyword, else the output of its failure link
+    private void link() {
+        ArrayDeque<Node<V>> queue = new ArrayDeque<>();
+        root.fail = root;
+        for (int i = 0; i < root.count; i++) {
+            Node<V> child = root.children[i];
+            if (root.keys[i] < 128) rootAscii[root.keys[i]] = child;
+            child.fail = root;
+            child.output = child.terminal ? child : null;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node<V> node = queue.poll();
+            for (int i = 0; i < node.count; i++) {
+                char c = node.keys[i];
+                Node<V> child = node.children[i];
+                child.fail = step(node.fail, c);
+                child.output = child.terminal ? child : child.fail.output;
+                queue.add(child);
+            }
+        }
+    }
+
+    /** Trie node with children in a sorted char array (binary search; nodes rarely have many). */
+    private static final class Node<V> {
+        final int depth;
+        private char[] keys = new char[0];
+        @SuppressWarnings("unchecked")
+        private Node<V>[] children = (Node<V>[]) new Node<?>[0];
+        private int count;
+        boolean terminal;
+        V value;
+        Node<V> fail;
+        Node<V> output;  // Longest keyword ending at this state, or null
+
+        Node(int depth) {
+            this.depth = depth;
+        }
+
+        Node<V> child(char c) {
+            int i = Arrays.binarySearch(keys, 0, count, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node<V> getOrAdd(char c) {
+            int i = Arrays.binarySearch(keys, 0, count, c);
+            if (i >= 0) return children[i];
+            int at = -i - 1;
+            if (count == keys.length) {
+                int cap = Math.max(2, count * 2);
+                keys = Arrays.copyOf(keys, cap);
+                children = Arrays.copyOf(children, cap);
+            }
+            System.arraycopy(keys, at, keys, at + 1, count - at);
+            System.arraycopy(children, at, children, at + 1, count - at);
+            Node<V> node = new Node<>(depth + 1);
+            keys[at] = c;
+            children[at] = node;
+            count++;
+            return node;
+        }
+    }
+}
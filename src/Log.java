@@ -0,0 +1,296 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal logging facade: level-gated, parameterized ("{}") and asynchronous.
+ * - A disabled level costs one int compare; the fixed-arity overloads avoid varargs arrays,
+ *   and the message is only formatted on the writer thread
+ * - Enabled events go into a bounded ring buffer; when it is full events are dropped and counted,
+ *   callers never block
+ * - One "log-writer" thread formats events and writes them to the console and to a size-rotated file
+ * Configured with system properties: tracker.log.level (DEBUG/INFO/WARN/ERROR, default INFO),
+ * tracker.log.file (default logs/activity_tracker.log, "none" to disable), tracker.log.console (default true).
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    // -------------------- CONFIGURABLE SETTINGS --------------------
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final int DRAIN_BATCH = 256;
+    private static final long MAX_FILE_BYTES = 5L * 1024 * 1024;  // Rotate after this size
+    private static final int KEEP_FILES = 3;                      // activity_tracker.log.1 .. .3
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static volatile int threshold = parseLevel(System.getProperty("tracker.log.level"), Level.INFO).ordinal();
+    private static final boolean console = !"false".equalsIgnoreCase(System.getProperty("tracker.log.console"));
+    private static final String filePath = System.getProperty("tracker.log.file", "logs/activity_tracker.log");
+
+    private static final BlockingQueue<Event> buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+    private static final AtomicLong dropped = new AtomicLong();
+    private static Thread writer;
+    private static volatile boolean running;
+    private static boolean hookAdded;
+    private static Writer file;
+    private static long fileBytes;
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    /** A logger whose lines are tagged [name]. Cheap; keep one in a static final field. */
+    public static Log get(String name) {
+        return new Log(name);
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static Level level() {
+        return Level.values()[threshold];
+    }
+
+    // -------------------- LEVEL GUARDS --------------------
+    public boolean isDebugEnabled() {
+        return threshold <= 0;
+    }
+
+    public boolean isEnabled(Level level) {
+        return threshold <= level.ordinal();
+    }
+
+    // -------------------- LOGGING --------------------
+    public void debug(String msg) { if (threshold <= 0) log(Level.DEBUG, msg, null); }
+    public void debug(String msg, Object a) { if (threshold <= 0) log(Level.DEBUG, msg, new Object[]{a}); }
+    public void debug(String msg, Object a, Object b) { if (threshold <= 0) log(Level.DEBUG, msg, new Object[]{a, b}); }
+    public void debug(String msg, Object a, Object b, Object c) { if (threshold <= 0) log(Level.DEBUG, msg, new Object[]{a, b, c}); }
+
+    public void info(String msg) { if (threshold <= 1) log(Level.INFO, msg, null); }
+    public void info(String msg, Object a) { if (threshold <= 1) log(Level.INFO, msg, new Object[]{a}); }
+    public void info(String msg, Object a, Object b) { if (threshold <= 1) log(Level.INFO, msg, new Object[]{a, b}); }
+    public void info(String msg, Object a, Object b, Object c) { if (threshold <= 1) log(Level.INFO, msg, new Object[]{a, b, c}); }
+
+    public void warn(String msg) { if (threshold <= 2) log(Level.WARN, msg, null); }
+    public void warn(String msg, Object a) { if (threshold <= 2) log(Level.WARN, msg, new Object[]{a}); }
+    public void warn(String msg, Object a, Object b) { if (threshold <= 2) log(Level.WARN, msg, new Object[]{a, b}); }
+    public void warn(String msg, Object a, Object b, Object c) { if (threshold <= 2) log(Level.WARN, msg, new Object[]{a, b, c}); }
+
+    public void error(String msg) { if (threshold <= 3) log(Level.ERROR, msg, null); }
+    public void error(String msg, Object a) { if (threshold <= 3) log(Level.ERROR, msg, new Object[]{a}); }
+    public void error(String msg, Object a, Object b) { if (threshold <= 3) log(Level.ERROR, msg, new Object[]{a, b}); }
+    public void error(String msg, Object a, Object b, Object c) { if (threshold <= 3) log(Level.ERROR, msg, new Object[]{a, b, c}); }
+
+    private void log(Level level, String msg, Object[] args) {
+        ensureStarted();
+        if (!buffer.offer(new Event(System.currentTimeMillis(), level, name, msg, args, Thread.currentThread().getName()))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    // -------------------- LIFECYCLE --------------------
+    private static void ensureStarted() {
+        if (running) return;
+        synchronized (Log.class) {
+            if (running) return;
+            running = true;
+            writer = new Thread(Log::drainLoop, "log-writer");
+            writer.setDaemon(true);
+            writer.start();
+            if (!hookAdded) {
+                Runtime.getRuntime().addShutdownHook(new Thread(Log::drainRemaining, "log-flush"));
+                hookAdded = true;
+            }
+        }
+    }
+
+    /** Write out everything logged so far and stop the writer thread. Later events start it again. */
+    public static void shutdown() {
+        Thread t;
+        synchronized (Log.class) {
+            running = false;
+            t = writer;
+            writer = null;
+        }
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        drainRemaining();
+    }
+
+    public static long droppedEvents() {
+        return dropped.get();
+    }
+
+    // -------------------- WRITER THREAD --------------------
+    private static void drainLoop() {
+        List<Event> batch = new ArrayList<>(DRAIN_BATCH);
+        while (running) {
+            try {
+                Event first = buffer.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                buffer.drainTo(batch, DRAIN_BATCH - 1);
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                break;
+            } catch (Throwable t) {
+                // Never allow the writer thread to die
+                t.printStackTrace();
+                batch.clear();
+            }
+        }
+    }
+
+    private static synchronized void drainRemaining() {
+        List<Event> batch = new ArrayList<>();
+        buffer.drainTo(batch);
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            batch.add(new Event(System.currentTimeMillis(), Level.WARN, "Log", "{} events dropped (buffer full)",
+                    new Object[]{lost}, "log-flush"));
+        }
+        write(batch);
+        closeFile();
+    }
+
+    private static synchronized void write(List<Event> batch) {
+        if (batch.isEmpty()) return;
+        StringBuilder out = new StringBuilder();
+        StringBuilder err = new StringBuilder();
+        StringBuilder all = new StringBuilder();
+        for (Event e : batch) {
+            String line = e.format();
+            all.append(line);
+            if (console) (e.level.ordinal() >= Level.WARN.ordinal() ? err : out).append(line);
+        }
+        if (out.length() > 0) System.out.print(out);
+        if (err.length() > 0) System.err.print(err);
+        writeFile(all.toString());
+    }
+
+    // -------------------- ROTATING FILE SINK --------------------
+    private static void writeFile(String text) {
+        if ("none".equalsIgnoreCase(filePath)) return;
+        try {
+            if (file == null) openFile();
+            if (fileBytes + text.length() > MAX_FILE_BYTES) {
+                closeFile();
+                rotate();
+                openFile();
+            }
+            file.write(text);
+            file.flush();
+            fileBytes += text.length();
+        } catch (IOException e) {
+            System.err.println("[Log] Cannot write " + filePath + ": " + e.getMessage());
+            closeFile();
+        }
+    }
+
+    private static void openFile() throws IOException {
+        File f = new File(filePath);
+        File dir = f.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+        fileBytes = f.length();
+        file = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f, true), StandardCharsets.UTF_8));
+    }
+
+    private static void closeFile() {
+        if (file == null) return;
+        try {
+            file.close();
+        } catch (IOException ignored) {
+        }
+        file = null;
+    }
+
+    // activity_tracker.log → .1 → .2 → ... ; the oldest is deleted
+    private static void rotate() {
+        File oldest = new File(filePath + "." + KEEP_FILES);
+        if (oldest.exists() && !oldest.delete()) return;
+        for (int i = KEEP_FILES - 1; i >= 1; i--) {
+            File f = new File(filePath + "." + i);
+            if (f.exists() && !f.renameTo(new File(filePath + "." + (i + 1)))) return;
+        }
+        new File(filePath).renameTo(new File(filePath + ".1"));
+    }
+
+    // -------------------- EVENTS --------------------
+    private static final class Event {
+        final long millis;
+        final Level level;
+        final String logger;
+        final String msg;
+        final Object[] args;
+        final String thread;
+
+        Event(long millis, Level level, String logger, String msg, Object[] args, String thread) {
+            this.millis = millis;
+            this.level = level;
+            this.logger = logger;
+            this.msg = msg;
+            this.args = args;
+            this.thread = thread;
+        }
+
+        // "2024-01-31 12:00:00.000 INFO  [DB] (tracking-thread) message"; a trailing Throwable argument
+        // that no {} consumed is printed with its stack trace
+        String format() {
+            StringBuilder sb = new StringBuilder(64 + msg.length());
+            sb.append(TIME.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault())));
+            sb.append(' ').append(level.name());
+            if (level.name().length() == 4) sb.append(' ');
+            sb.append(" [").append(logger).append("] (").append(thread).append(") ");
+            int used = 0;
+            int from = 0;
+            while (true) {
+                int at = msg.indexOf("{}", from);
+                if (at < 0 || args == null || used >= args.length) break;
+                sb.append(msg, from, at).append(args[used++]);
+                from = at + 2;
+            }
+            sb.append(msg, from, msg.length()).append(System.lineSeparator());
+            if (args != null && used < args.length && args[args.length - 1] instanceof Throwable) {
+                StringWriter trace = new StringWriter();
+                ((Throwable) args[args.length - 1]).printStackTrace(new PrintWriter(trace));
+                sb.append(trace);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static Level parseLevel(String value, Level fallback) {
+        if (value == null) return fallback;
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -18,6 +18,8 @@ import java.util.concurrent.*;
  */
 public class Main extends Application {
 
+    private static final Log log = Log.get("App");
+
     private TrackingService tracker;
     private ScheduledExecutorService uiRefresher;
 
@@ -49,7 +51,7 @@ public class Main extends Application {
             DatabaseHelper.insertWebsite("stackoverflow.com", 1);  // Productive
             DatabaseHelper.insertWebsite("youtube.com", 2);        // Distracting
 
-            System.out.println("✅ Sample data inserted into database.");
+            log.info("Sample data inserted into database.");
         }
 
         // ----------------------
@@ -92,7 +94,7 @@ public class Main extends Application {
                 // Run UI updates on JavaFX thread
                 Platform.runLater(this::refreshUi);
             } catch (Throwable t) {
-                t.printStackTrace();
+                log.error("Scheduling UI refresh failed", t);
             }
         }, 0, 5, TimeUnit.SECONDS);
     }
@@ -116,8 +118,8 @@ public class Main extends Application {
             categoriesLabel.setText("Categories: <error>");
             appsLabel.setText("Applications: <error>");
             websitesLabel.setText("Websites: <error>");
-            statusLabel.setText("Status: Error reading DB - see console");
-            e.printStackTrace();
+            statusLabel.setText("Status: Error reading DB - see log");
+            log.error("UI refresh failed", e);
         }
     }
 
@@ -126,15 +128,14 @@ public class Main extends Application {
      */
     @Override
     public void stop() throws Exception {
-        System.out.println("Shutting down application...");
+        log.info("Shutting down application...");
 
         // 1) Stop tracking (flushes current item)
         if (tracker != null) {
             try {
                 tracker.stop();
             } catch (Exception e) {
-                System.err.println("Error stopping tracker:");
-                e.printStackTrace();
+                log.error("Error stopping tracker", e);
             }
         }
 
@@ -151,8 +152,16 @@ public class Main extends Application {
             }
         }
 
+        // 3) Drain queued activity rows and release pooled DB connections
+        DataVersionWatcher.stop();
+        ClassificationRules.stopWatching();
+        FocusSchedule.stop();
+        ActivityLogWriter.shutdown();
+        ConnectionManager.shutdown();
+
         super.stop();
-        System.out.println("Application stopped.");
+        log.info("Application stopped.");
+        Log.shutdown();
     }
 
     public static void main(String[] args) {
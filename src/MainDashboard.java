@@ -85,8 +85,15 @@ public class MainDashboard extends Application {
         if (tracker != null) tracker.stop();
         dashboardPage.stop();
         codingGamingPage.stop();
+        focusPage.stop();
         NotificationHelper.stop();
+        DataVersionWatcher.stop();
+        ClassificationRules.stopWatching();
+        FocusSchedule.stop();
+        ActivityLogWriter.shutdown();
+        ConnectionManager.shutdown();
         super.stop();
+        Log.shutdown();
     }
 
     public static void main(String[] args) {
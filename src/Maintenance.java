@@ -0,0 +1,94 @@
+import javafx.util.Pair;
+import models.ActivityLog;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line maintenance on the tracker database, without starting JavaFX (Main and MainDashboard
+ * are Applications, so the launcher would open the toolkit before their main() runs).
+ * Uses activity_tracker.db in the working directory, or -Dtracker.db=<path>. Exits with status 1 on failure.
+ *
+ *   java Maintenance --rebuild-rollup                       recompute Daily_Usage from Activity_Log (archived days are kept)
+ *   java Maintenance --export-sessions FROM TO out.csv      raw sessions of days FROM..TO (yyyy-MM-dd), archives included
+ */
+public class Maintenance {
+
+    private static final Log log = Log.get("Maintenance");
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "";
+        boolean ok;
+        switch (command) {
+            case "--rebuild-rollup":
+                DatabaseHelper.enableWALMode();
+                DatabaseHelper.createTables();
+                // A running tracker picks the new rollup up through DataVersionWatcher
+                ok = DailyUsageRollup.rebuild();
+                break;
+            case "--export-sessions":
+                if (args.length < 4) {
+                    System.err.println("usage: java Maintenance --export-sessions FROM TO out.csv");
+                    ok = false;
+                    break;
+                }
+                DatabaseHelper.enableWALMode();
+                DatabaseHelper.createTables();
+                ok = exportSessions(LocalDate.parse(args[1]), LocalDate.parse(args[2]), Path.of(args[3]));
+                break;
+            default:
+                System.err.println("usage: java Maintenance --rebuild-rollup | --export-sessions FROM TO out.csv");
+                ok = false;
+        }
+        log.info("{} {}", command, ok ? "done" : "failed");
+        ConnectionManager.shutdown();
+        Log.shutdown();
+        System.exit(ok ? 0 : 1);
+    }
+
+    // -------------------- EXPORT --------------------
+    private static boolean exportSessions(LocalDate from, LocalDate to, Path out) {
+        List<ActivityLog> sessions;
+        try {
+            sessions = ActivityArchiver.queryActivityLogs(from, to);
+        } catch (SQLException e) {
+            log.error("Reading sessions {}..{} failed", from, to, e);
+            return false;
+        }
+        Map<Integer, String> apps = names(DatabaseHelper.getAppsWithBlockedStatus());
+        Map<Integer, String> sites = names(DatabaseHelper.getWebsitesWithBlockedStatus());
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8))) {
+            w.println("start_time,end_time,duration_seconds,app,site");
+            for (ActivityLog s : sessions) {
+                w.println(s.getStartTime() + "," + s.getEndTime() + "," + s.getDuration() + "," +
+                        csv(s.getAppId() == null ? null : apps.get(s.getAppId())) + "," +
+                        csv(s.getSiteId() == null ? null : sites.get(s.getSiteId())));
+            }
+        } catch (IOException e) {
+            log.error("Writing {} failed", out, e);
+            return false;
+        }
+        log.info("Exported {} sessions to {}", sessions.size(), out);
+        return true;
+    }
+
+    private static Map<Integer, String> names(List<Map.Entry<Integer, Pair<String, Boolean>>> rows) {
+        Map<Integer, String> names = new HashMap<>();
+        for (Map.Entry<Integer, Pair<String, Boolean>> e : rows) names.put(e.getKey(), e.getValue().getKey());
+        return names;
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
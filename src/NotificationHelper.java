@@ -1,12 +1,15 @@
 import java.awt.*;
-import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Iterator;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
-import javafx.util.Pair;
 
 public class NotificationHelper {
+
+    private static final Log log = Log.get("Notification");
+
+    private static final int PROCESS_POLL_SECONDS = 2; // Process diff is cheap; poll often for low detection latency
+
     private static TrayIcon trayIcon;
+    private static volatile ProcessWatcher processWatcher;
     private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread t = new Thread(r, "notif-thread");
         t.setDaemon(true);
@@ -22,7 +25,7 @@ public class NotificationHelper {
             trayIcon.setImageAutoSize(true);
             tray.add(trayIcon);
         } catch (Throwable t) {
-            t.printStackTrace();
+            log.error("Tray icon setup failed", t);
         }
     }
 
@@ -31,28 +34,54 @@ public class NotificationHelper {
         scheduler.scheduleAtFixedRate(() -> {
             try {
                 // Simple approach: sum today's continuous coding. Here we sum today's productive durations.
-                var p = DatabaseHelper.queryProductiveVsTotalToday();
-                int productive = p.getKey();
+                int productive = TodayUsage.current().productiveSeconds;
                 if (productive >= thresholdSeconds) {
                     showNotification("Take a break", "You've been productive for " + (productive/60) + " minutes.");
                 }
-            } catch (Throwable t) { t.printStackTrace(); }
+            } catch (Throwable t) { log.error("Break check failed", t); }
         }, 10, checkIntervalSeconds, TimeUnit.SECONDS);
     }
 
-    // Periodic checker for blocked apps (call startBlockedAppChecker(30) in main app)
+    // Blocked-app watcher (call startBlockedAppChecker(30) in main app):
+    // new blocked processes are reported within PROCESS_POLL_SECONDS, running ones are re-announced every checkIntervalSeconds
     public static void startBlockedAppChecker(int checkIntervalSeconds) {
-        scheduler.scheduleAtFixedRate(() -> {
+        ProcessWatcher watcher = new ProcessWatcher(() -> Blocklist.current().blockedAppNames());
+        watcher.addListener((process, appName) -> {
+            if (SettingsStore.isFocusModeEnabled()) showBlockedApp(appName);
+        });
+        processWatcher = watcher;
+        scheduler.scheduleWithFixedDelay(() -> {
             try {
-                List<String> runningApps = getRunningApps();
-                for (String app : runningApps) {
-                    if (DatabaseHelper.isAppBlockedByName(app)) {
-                        showNotification("Blocked App Detected", "Close '" + normalizeAppName(app) + "' to stay in Focus Mode.");
-                        break; // Avoid spam
-                    }
-                }
-            } catch (Throwable t) { t.printStackTrace(); }
-        }, 10, checkIntervalSeconds, TimeUnit.SECONDS);
+                watcher.poll();
+            } catch (Throwable t) { log.error("Process poll failed", t); }
+        }, 0, PROCESS_POLL_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(NotificationHelper::remindBlockedApps, 10, checkIntervalSeconds, TimeUnit.SECONDS);
+        // Check right away when Focus Mode is switched on instead of waiting for the next tick
+        SettingsStore.addListener((key, value) -> {
+            if (SettingsStore.FOCUS_MODE_ENABLED.equals(key) && "true".equals(value) && !scheduler.isShutdown()) {
+                scheduler.execute(NotificationHelper::remindBlockedApps);
+            }
+        });
+    }
+
+    // Reads the watcher's in-memory set; no process scan and no SQL
+    private static void remindBlockedApps() {
+        try {
+            ProcessWatcher watcher = processWatcher;
+            if (watcher == null || !SettingsStore.isFocusModeEnabled()) return;
+            Iterator<String> running = watcher.blockedRunning().values().iterator();
+            if (running.hasNext()) showBlockedApp(running.next()); // One at a time to avoid spam
+        } catch (Throwable t) { log.error("Blocked app reminder failed", t); }
+    }
+
+    private static void showBlockedApp(String appName) {
+        showNotification("Blocked App Detected", "Close '" + appName + "' to stay in Focus Mode.");
+    }
+
+    /** Process watcher counters, or null before startBlockedAppChecker(). */
+    public static String processWatcherStats() {
+        ProcessWatcher watcher = processWatcher;
+        return watcher != null ? watcher.stats() : null;
     }
 
     // NEW: Schedule a one-time delayed notification (e.g., 10s after Focus Mode enable)
@@ -60,37 +89,16 @@ public class NotificationHelper {
         scheduler.schedule(() -> {
             try {
                 showNotification(title, message);
-            } catch (Throwable t) { t.printStackTrace(); }
+            } catch (Throwable t) { log.error("Delayed notification failed", t); }
         }, delaySeconds, TimeUnit.SECONDS);
     }
 
-    private static List<String> getRunningApps() {
-        return ProcessHandle.allProcesses()
-                .map(ph -> ph.info().command().orElse(""))
-                .filter(cmd -> !cmd.isEmpty())
-                .map(NotificationHelper::normalizeAppName)
-                .collect(Collectors.toList());
-    }
-
-    // NEW: Helper for normalization (mirror from DB for consistency)
-    private static String normalizeAppName(String rawName) {
-        if (rawName == null) return "";
-        String name = rawName;
-        if (name.contains("\\") || name.contains("/")) {
-            name = new java.io.File(name).getName();
-        }
-        if (name.toLowerCase().endsWith(".exe")) {
-            name = name.substring(0, name.length() - 4);
-        }
-        return name.trim();
-    }
-
     public static void showNotification(String title, String message) {
-        System.out.println("[NOTIF DEBUG] Showing: " + title + " - " + message); // Always console
+        log.debug("Showing: {} - {}", title, message);
         if (trayIcon != null) {
             trayIcon.displayMessage(title, message, TrayIcon.MessageType.INFO);
         } else {
-            System.out.println("[Notification] " + title + " - " + message);
+            log.info("{} - {}", title, message); // No tray: the log is the only place it shows up
         }
     }
 
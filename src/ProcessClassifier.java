@@ -0,0 +1,26 @@
+/**
+ * Classifier used by ActivityMonitor: app name and category from the exe via CodingGamingDetector,
+ * website domain from the title when the exe is a browser, raw exe name as the fallback.
+ */
+public class ProcessClassifier implements TrackingEngine.Classifier {
+
+    private static final int DEFAULT_APP_CATEGORY = 1;  // Productive
+    private static final int DEFAULT_SITE_CATEGORY = 2; // Distracting
+
+    @Override
+    public TrackingEngine.Classification classify(ForegroundSnapshot fg) {
+        String procExe = fg.exe != null ? fg.exe.toLowerCase() : null;
+        if (procExe != null && WindowClassifier.isBrowser(procExe)) {
+            String host = WebsiteTracker.normalizeHost(WebsiteTracker.extractDomainFromTitle(fg.title));
+            if (host != null && !host.isEmpty()) {
+                ClassificationRules.Match site = ClassificationRules.current().resolveSite(host);
+                int category = site != null && site.category > 0 ? site.category : DEFAULT_SITE_CATEGORY;
+                return new TrackingEngine.Classification(WebsiteTracker.normalizeDomain(host), true, category, host);
+            }
+        }
+        String appName = CodingGamingDetector.getAppNameForProcess(procExe);
+        int category = CodingGamingDetector.getCategoryForProcess(procExe);
+        String item = appName != null ? appName : (procExe != null ? procExe : "Unknown");
+        return new TrackingEngine.Classification(item, false, category > 0 ? category : DEFAULT_APP_CATEGORY);
+    }
+}
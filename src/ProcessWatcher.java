@@ -0,0 +1,201 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Incremental view of running processes for Focus Mode.
+ * - Each poll lists pids and diffs them against the previous poll; only new processes have their
+ *   command read (the expensive part) and are tested against the in-memory blocklist
+ * - Processes are keyed by ProcessHandle, which compares pid and start time, so a reused pid counts as new
+ * - Blocked processes get an onExit() callback, so their exit is reported without waiting for a poll;
+ *   other exits are noticed by the diff
+ * - When the blocklist changes, already-known processes are re-tested from their cached names (no OS calls)
+ */
+public class ProcessWatcher {
+
+    private static final Log log = Log.get("ProcessWatcher");
+
+    /** Called on the polling thread (started) or on an onExit() completion thread (exited). */
+    public interface Listener {
+        void onBlockedStarted(ProcessHandle process, String appName);
+
+        default void onBlockedExited(ProcessHandle process, String appName) { }
+    }
+
+    private static final class Known {
+        final String exeName;   // Command file name without .exe, "" if unreadable
+        final String appName;   // Label from ClassificationRules, or null
+        long seenInPoll;
+        boolean exitHooked;     // onExit() registered; a handle only ever needs one
+
+        Known(String exeName, String appName) {
+            this.exeName = exeName;
+            this.appName = appName;
+        }
+    }
+
+    private final Supplier<Set<String>> blockedNames;
+    private final Map<ProcessHandle, Known> known = new HashMap<>();
+    private final Map<ProcessHandle, String> blockedRunning = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private Set<String> lastBlocked;
+    private long pollCount;
+
+    // -------------------- METRICS --------------------
+    private long started;
+    private long exited;
+    private long commandReads;
+    private long exitHooks;
+    private long lastPollNanos;
+    private int lastProcessCount;
+
+    /** blockedNames returns the current set of blocked app names; a new instance means it changed. */
+    public ProcessWatcher(Supplier<Set<String>> blockedNames) {
+        this.blockedNames = blockedNames;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** Blocked processes running right now (pid handle → matched name). */
+    public Map<ProcessHandle, String> blockedRunning() {
+        return Collections.unmodifiableMap(blockedRunning);
+    }
+
+    // -------------------- ONE POLL --------------------
+    public synchronized void poll() {
+        long t0 = System.nanoTime();
+        long poll = ++pollCount;
+        Set<String> blocked = blockedNames.get();
+        boolean blocklistChanged = blocked != lastBlocked;
+        lastBlocked = blocked;
+
+        List<ProcessHandle> fresh = new ArrayList<>();
+        int count = 0;
+        for (Iterator<ProcessHandle> it = ProcessHandle.allProcesses().iterator(); it.hasNext(); ) {
+            ProcessHandle p = it.next();
+            count++;
+            Known k = known.get(p);
+            if (k != null) {
+                k.seenInPoll = poll;
+            } else {
+                fresh.add(p);
+            }
+        }
+
+        // Gone since the last poll (or a blocked one whose onExit already fired)
+        for (Iterator<Map.Entry<ProcessHandle, Known>> it = known.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<ProcessHandle, Known> e = it.next();
+            if (e.getValue().seenInPoll != poll) {
+                it.remove();
+                exited++;
+                blockedExited(e.getKey());
+            }
+        }
+
+        if (blocklistChanged) {
+            for (Map.Entry<ProcessHandle, Known> e : known.entrySet()) {
+                String match = match(e.getValue(), blocked);
+                if (match == null) blockedRunning.remove(e.getKey());
+                else if (!blockedRunning.containsKey(e.getKey())) blockedStarted(e.getKey(), e.getValue(), match);
+            }
+        }
+
+        for (ProcessHandle p : fresh) {
+            Known k = describe(p);
+            k.seenInPoll = poll;
+            known.put(p, k);
+            started++;
+            String match = match(k, blocked);
+            if (match != null) blockedStarted(p, k, match);
+        }
+
+        lastProcessCount = count;
+        lastPollNanos = System.nanoTime() - t0;
+    }
+
+    private Known describe(ProcessHandle p) {
+        commandReads++;
+        String command = p.info().command().orElse("");
+        String exeName = command.isEmpty() ? "" : normalizeExeName(command);
+        String appName = null;
+        if (!exeName.isEmpty()) {
+            ClassificationRules.Match m = ClassificationRules.current().resolveApp(new File(command).getName(), null);
+            if (m != null) appName = m.appName;
+        }
+        return new Known(exeName, appName);
+    }
+
+    // Blocked names are Applications.name values: either the bare exe name or the rules label
+    private static String match(Known k, Set<String> blocked) {
+        if (blocked == null || blocked.isEmpty() || k.exeName.isEmpty()) return null;
+        if (blocked.contains(k.exeName)) return k.exeName;
+        if (k.appName != null && blocked.contains(k.appName)) return k.appName;
+        return null;
+    }
+
+    private void blockedStarted(ProcessHandle p, Known k, String name) {
+        blockedRunning.put(p, name);
+        log.debug("Blocked process started: {} (pid {})", name, p.pid());
+        // Blocklist changes can re-match the same process; the first hook already covers its exit
+        if (!k.exitHooked) {
+            k.exitHooked = true;
+            exitHooks++;
+            p.onExit().thenRun(() -> blockedExited(p));
+        }
+        for (Listener l : listeners) {
+            try {
+                l.onBlockedStarted(p, name);
+            } catch (Throwable t) {
+                log.error("Listener failed on start of {}", name, t);
+            }
+        }
+    }
+
+    // Reached from the diff and from onExit(); whichever comes first reports it
+    private void blockedExited(ProcessHandle p) {
+        String name = blockedRunning.remove(p);
+        if (name == null) return;
+        log.debug("Blocked process exited: {} (pid {})", name, p.pid());
+        for (Listener l : listeners) {
+            try {
+                l.onBlockedExited(p, name);
+            } catch (Throwable t) {
+                log.error("Listener failed on exit of {}", name, t);
+            }
+        }
+    }
+
+    // Strip path and .exe (same normalization DatabaseHelper applies to app names)
+    static String normalizeExeName(String rawName) {
+        String name = rawName;
+        if (name.contains("\\") || name.contains("/")) {
+            name = new File(name).getName();
+        }
+        if (name.toLowerCase().endsWith(".exe")) {
+            name = name.substring(0, name.length() - 4);
+        }
+        return name.trim();
+    }
+
+    /** onExit() callbacks registered so far (one per blocked process at most). */
+    synchronized long exitHooks() {
+        return exitHooks;
+    }
+
+    public synchronized String stats() {
+        return String.format("ProcessWatcher{polls=%d, processes=%d, started=%d, exited=%d, commandReads=%d, "
+                        + "exitHooks=%d, blockedRunning=%d, lastPoll=%.2fms}",
+                pollCount, lastProcessCount, started, exited, commandReads, exitHooks, blockedRunning.size(),
+                lastPollNanos / 1e6);
+    }
+}
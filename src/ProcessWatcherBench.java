@@ -0,0 +1,100 @@
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end check of ProcessWatcher against real processes.
+ * - Starts a child process (sleep by default) whose name is on the blocklist and polls until it is reported
+ * - Unblocks and re-blocks it: it must be reported again, still with a single onExit() hook
+ * - Kills it: the exit must arrive through onExit() without another poll, exactly once
+ * Then times steady-state polls over the whole process table.
+ * Needs a command that runs for a while and takes one argument (seconds); exits with status 1 on failure.
+ *
+ *   java ProcessWatcherBench [command] [polls]     (default sleep 200)
+ */
+public class ProcessWatcherBench {
+
+    private static final long WAIT_SECONDS = 5;
+
+    private static volatile Set<String> blocked = Collections.emptySet();
+
+    public static void main(String[] args) throws Exception {
+        String command = args.length > 0 ? args[0] : "sleep";
+        int polls = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        String name = ProcessWatcher.normalizeExeName(command);
+
+        BlockingQueue<ProcessHandle> started = new ArrayBlockingQueue<>(16);
+        BlockingQueue<ProcessHandle> exited = new ArrayBlockingQueue<>(16);
+        ProcessWatcher watcher = new ProcessWatcher(() -> blocked);
+        watcher.addListener(new ProcessWatcher.Listener() {
+            @Override
+            public void onBlockedStarted(ProcessHandle process, String appName) {
+                started.offer(process);
+            }
+
+            @Override
+            public void onBlockedExited(ProcessHandle process, String appName) {
+                exited.offer(process);
+            }
+        });
+
+        watcher.poll();  // Everything already running is known before the child starts
+        blocked = Collections.singleton(name);
+        Process child = new ProcessBuilder(command, "60").start();
+        ProcessHandle handle = child.toHandle();
+        try {
+            // Started: reported by the first poll that sees it
+            watcher.poll();
+            check(handle.equals(poll(started, handle)), "start of " + name + " (pid " + handle.pid() + ") reported");
+
+            // Unblock, then block again: reported again, no second exit hook
+            blocked = Collections.emptySet();
+            watcher.poll();
+            check(!watcher.blockedRunning().containsKey(handle), "dropped from blockedRunning when unblocked");
+            blocked = Collections.singleton(name);
+            watcher.poll();
+            check(handle.equals(poll(started, handle)), "re-reported after blocking again");
+            check(watcher.exitHooks() == 1, "one onExit() hook after re-matching (" + watcher.exitHooks() + ")");
+
+            // Exited: onExit() reports it on its own, once
+            child.destroy();
+            check(handle.equals(poll(exited, handle)), "exit reported without polling");
+            watcher.poll();
+            check(exited.poll(500, TimeUnit.MILLISECONDS) == null, "exit reported only once");
+        } finally {
+            child.destroyForcibly();
+        }
+
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < polls; i++) {
+            long t0 = System.nanoTime();
+            watcher.poll();
+            long t = System.nanoTime() - t0;
+            best = Math.min(best, t);
+            total += t;
+        }
+        System.out.printf("%d polls: avg=%.2fms best=%.2fms%n", polls, total / 1e6 / Math.max(1, polls), best / 1e6);
+        System.out.println(watcher.stats());
+        Log.shutdown();
+    }
+
+    // Next event for handle; events for other processes with the same name are skipped
+    private static ProcessHandle poll(BlockingQueue<ProcessHandle> events, ProcessHandle handle) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_SECONDS);
+        while (true) {
+            ProcessHandle p = events.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (p == null || p.equals(handle)) return p;
+        }
+    }
+
+    private static void check(boolean ok, String what) {
+        System.out.println((ok ? "ok    " : "FAIL  ") + what);
+        if (!ok) {
+            Log.shutdown();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Public-suffix rules (publicsuffix.org format) in a trie of reversed labels, like DomainTrie.
+ * - Supports normal rules, "*" wildcards and "!" exceptions; unknown TLDs fall back to the "*" default rule
+ * - Lookups walk the host in place and never allocate; only the returned substring is new
+ * The bundled list is public_suffix_list.dat next to the classes; it is parsed once, on first use.
+ */
+public final class PublicSuffixList {
+
+    private static final Log log = Log.get("PublicSuffixList");
+
+    private static final String RESOURCE = "/public_suffix_list.dat";
+    private static volatile PublicSuffixList bundled;
+
+    private final DomainTrie.Node rules = new DomainTrie.Node();
+    private final DomainTrie.Node exceptions = new DomainTrie.Node();
+    private int size;
+
+    /** The list shipped with the app (empty, i.e. default rule only, if the resource is missing). */
+    public static PublicSuffixList bundled() {
+        PublicSuffixList list = bundled;
+        if (list == null) {
+            synchronized (PublicSuffixList.class) {
+                list = bundled;
+                if (list == null) bundled = list = load();
+            }
+        }
+        return list;
+    }
+
+    private static PublicSuffixList load() {
+        PublicSuffixList list = new PublicSuffixList();
+        try (InputStream in = PublicSuffixList.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                log.warn("{} not found; using the default rule only", RESOURCE);
+                return list;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) list.addRule(line);
+        } catch (IOException e) {
+            log.error("Reading the bundled list failed", e);
+        }
+        return list;
+    }
+
+    /** Add one line of the list; comments and blank lines are ignored. */
+    public void addRule(String line) {
+        String rule = line.trim();
+        int space = rule.indexOf(' ');
+        if (space >= 0) rule = rule.substring(0, space);
+        if (rule.isEmpty() || rule.startsWith("//")) return;
+        rule = rule.toLowerCase(Locale.ROOT);
+        if (rule.startsWith("!")) insert(exceptions, rule.substring(1));
+        else insert(rules, rule);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // -------------------- LOOKUPS --------------------
+    /** Index in host where its public suffix starts ("news.bbc.co.uk" → 9, i.e. "co.uk"). */
+    public int suffixStart(String host) {
+        int labels = suffixLabels(host);
+        int start = host.length();
+        for (int i = 0; i < labels && start > 0; i++) start = DomainTrie.lastDot(host, 0, start - 1) + 1;
+        return start;
+    }
+
+    /** True if the last label of host is a TLD on the list (filters out "readme.txt"-style matches). */
+    public boolean hasKnownTld(String host) {
+        if (host == null || host.isEmpty()) return false;
+        int dot = DomainTrie.lastDot(host, 0, host.length());
+        DomainTrie.Node tld = rules.child(host, dot + 1, host.length());
+        return tld != null && tld.terminal;
+    }
+
+    /**
+     * The public suffix plus extraLabels labels in front of it: extraLabels 1 is eTLD+1
+     * ("mail.google.com" → "google.com", "news.bbc.co.uk" → "bbc.co.uk").
+     * A host that has no more labels than that is returned unchanged.
+     */
+    public String registrableDomain(String host, int extraLabels) {
+        if (host == null || host.isEmpty()) return host;
+        int start = suffixStart(host);
+        for (int i = 0; i < extraLabels && start > 0; i++) {
+            start = DomainTrie.lastDot(host, 0, start - 1) + 1;
+        }
+        return start == 0 ? host : host.substring(start);
+    }
+
+    // Number of labels in the public suffix of host (at least 1: the default "*" rule)
+    private int suffixLabels(String host) {
+        int best = 1;
+        DomainTrie.Node node = rules;
+        int end = host.length();
+        int depth = 0;
+        while (end > 0 && node != null) {
+            int dot = DomainTrie.lastDot(host, 0, end);
+            depth++;
+            DomainTrie.Node exact = node.child(host, dot + 1, end);
+            DomainTrie.Node wild = node.child("*", 0, 1);
+            if ((exact != null && exact.terminal) || (wild != null && wild.terminal)) best = Math.max(best, depth);
+            node = exact != null ? exact : wild;
+            end = dot;
+        }
+        // An exception rule wins over everything: its suffix is the rule minus its leftmost label
+        int exception = exceptionLabels(host);
+        return exception > 0 ? exception - 1 : best;
+    }
+
+    private int exceptionLabels(String host) {
+        DomainTrie.Node node = exceptions;
+        int end = host.length();
+        int depth = 0;
+        while (end > 0) {
+            int dot = DomainTrie.lastDot(host, 0, end);
+            node = node.child(host, dot + 1, end);
+            if (node == null) return 0;
+            depth++;
+            if (node.terminal) return depth;
+            end = dot;
+        }
+        return 0;
+    }
+
+    private static void insert(DomainTrie.Node root, String rule) {
+        DomainTrie.Node node = root;
+        int end = rule.length();
+        while (end > 0) {
+            int dot = DomainTrie.lastDot(rule, 0, end);
+            if (dot + 1 < end) node = node.getOrAdd(rule.substring(dot + 1, end));
+            end = dot;
+        }
+        node.terminal = true;
+    }
+}
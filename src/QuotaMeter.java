@@ -0,0 +1,143 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Usage stage that enforces UsageQuotas from running counters for the current day.
+ * - Seeded once from TodayUsage when created; after that closed spans add to the counters and the
+ *   running span is added on top at every settled tick
+ * - Counters reset when the engine's clock crosses midnight (spans crossing it only count today's part)
+ * - A quota that runs out is published to UsageQuotas.setExceeded(); FocusEnforcer then blocks and warns
+ * Counts the spans the engine closes, i.e. the same per-item seconds Activity_Log gets in SUB_SPANS mode.
+ * Not thread-safe: called from the tracking thread only.
+ */
+public class QuotaMeter implements TrackingEngine.UsageMeter {
+
+    private static final Log log = Log.get("QuotaMeter");
+
+    private final Map<String, long[]> itemSeconds = new HashMap<>();   // "a:" / "w:" key → closed seconds today
+    private final Map<Integer, long[]> quotaSeconds = new HashMap<>(); // quota id → closed seconds today
+    private final Set<UsageQuotas.Quota> exceeded = new HashSet<>();
+    private LocalDateTime dayStart;
+    private LocalDateTime nextDayStart;
+    private int dayOfWeek;
+    private long rulesVersion = -1;
+
+    // Last running item, so a settled foreground costs no lookups
+    private TrackingEngine.Classification lastItem;
+    private UsageQuotas.Quota lastQuota;
+
+    public QuotaMeter(LocalDateTime now) {
+        startDay(now.toLocalDate());
+        seed();
+    }
+
+    // -------------------- ENGINE CALLBACKS --------------------
+    @Override
+    public void spanClosed(Sessionizer.Session span) {
+        if (!span.end.isBefore(nextDayStart)) startDay(span.end.toLocalDate());
+        if (!span.end.isAfter(dayStart)) return;  // Entirely before today
+        long seconds = span.start.isBefore(dayStart)
+                ? Math.min(span.seconds, ChronoUnit.SECONDS.between(dayStart, span.end))
+                : span.seconds;
+        UsageQuotas.Quota q = quotaFor(span.item, span.website);  // May regroup counters; add afterwards
+        add(key(span.item, span.website), seconds);
+        if (q != null) quotaSeconds.computeIfAbsent(q.id, id -> new long[1])[0] += seconds;
+    }
+
+    @Override
+    public void running(TrackingEngine.Classification current, LocalDateTime start, LocalDateTime now) {
+        if (!now.isBefore(nextDayStart)) startDay(now.toLocalDate());
+        UsageQuotas.Snapshot rules = UsageQuotas.current();
+        if (rules.version != rulesVersion) rebuildQuotaCounters(rules);
+        if (rules.isEmpty()) return;
+
+        if (current != lastItem) {
+            lastItem = current;
+            lastQuota = rules.resolve(current.item, current.website);
+        }
+        UsageQuotas.Quota q = lastQuota;
+        if (q == null || !q.appliesOn(dayOfWeek) || exceeded.contains(q)) return;
+        long open = ChronoUnit.SECONDS.between(start.isBefore(dayStart) ? dayStart : start, now);
+        long[] closed = quotaSeconds.get(q.id);
+        long used = (closed != null ? closed[0] : 0) + open;
+        if (used >= q.limitSeconds) {
+            exceeded.add(q);
+            UsageQuotas.setExceeded(exceeded);
+            log.info("Daily limit reached: {} ({} used)", q, UsageQuotas.formatLimit((int) used));
+        }
+    }
+
+    // -------------------- COUNTERS --------------------
+    /** Seconds counted today for an item (closed spans only). */
+    public long secondsToday(String item, boolean website) {
+        long[] s = itemSeconds.get(key(item, website));
+        return s != null ? s[0] : 0;
+    }
+
+    private void startDay(LocalDate day) {
+        if (dayStart != null) log.debug("New day {}: resetting {} usage counters", day, itemSeconds.size());
+        dayStart = day.atStartOfDay();
+        nextDayStart = dayStart.plusDays(1);
+        dayOfWeek = day.getDayOfWeek().getValue();
+        itemSeconds.clear();
+        quotaSeconds.clear();
+        if (!exceeded.isEmpty()) {
+            exceeded.clear();
+            UsageQuotas.setExceeded(exceeded);
+        }
+    }
+
+    // Today's totals so far, so a restart mid-day keeps counting from where it was
+    private void seed() {
+        TodayUsage.Snapshot today = TodayUsage.current();
+        if (!today.day.equals(dayStart.toLocalDate())) return;
+        for (UsageAggregator.EntityTotal t : today.apps) {
+            if (t.seconds > 0) add(key(t.name, false), t.seconds);
+        }
+        for (UsageAggregator.EntityTotal t : today.sites) {
+            if (t.seconds > 0) add(key(t.name, true), t.seconds);
+        }
+        log.debug("Seeded {} usage counters for {}", itemSeconds.size(), today.day);
+    }
+
+    // Quotas were edited: regroup the per-item counters under the new rules
+    private void rebuildQuotaCounters(UsageQuotas.Snapshot rules) {
+        rulesVersion = rules.version;
+        lastItem = null;
+        lastQuota = null;
+        quotaSeconds.clear();
+        for (Map.Entry<String, long[]> e : itemSeconds.entrySet()) {
+            String key = e.getKey();
+            UsageQuotas.Quota q = rules.resolve(key.substring(2), key.charAt(0) == 'w');
+            if (q != null) quotaSeconds.computeIfAbsent(q.id, id -> new long[1])[0] += e.getValue()[0];
+        }
+        // Edited or removed quotas leave the exceeded set; edited ones are re-checked on the next tick
+        if (exceeded.retainAll(new HashSet<>(rules.quotas))) UsageQuotas.setExceeded(exceeded);
+    }
+
+    private UsageQuotas.Quota quotaFor(String item, boolean website) {
+        UsageQuotas.Snapshot rules = UsageQuotas.current();
+        if (rules.version != rulesVersion) rebuildQuotaCounters(rules);
+        return rules.resolve(item, website);
+    }
+
+    private void add(String key, long seconds) {
+        itemSeconds.computeIfAbsent(key, k -> new long[1])[0] += seconds;
+    }
+
+    // Same normalization UsageQuotas.Snapshot.resolve applies
+    private static String key(String item, boolean website) {
+        String lower = item.toLowerCase(Locale.ROOT);
+        return website ? "w:" + Blocklist.hostOf(lower) : "a:" + lower;
+    }
+
+    public String stats() {
+        return "quotas{items=" + itemSeconds.size() + ", exceeded=" + exceeded.size() + "}";
+    }
+}
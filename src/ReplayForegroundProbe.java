@@ -0,0 +1,93 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Replays foreground samples recorded to a file, one per line:
+ *   hwnd TAB pid TAB exe TAB title      ("-" for a missing exe; tabs/newlines in titles become spaces)
+ * Lines starting with '#' are comments. Record a file with {@link #recording(ForegroundProbe, Path)}.
+ */
+public class ReplayForegroundProbe implements ForegroundProbe {
+
+    private final List<ForegroundSnapshot> samples;
+    private final boolean loop;
+    private int next = 0;
+
+    public ReplayForegroundProbe(Path file, boolean loop) throws IOException {
+        List<ForegroundSnapshot> list = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank() || line.startsWith("#")) continue;
+                try {
+                    list.add(parse(line));
+                } catch (RuntimeException e) {
+                    throw new IOException(file + ":" + lineNo + ": bad sample '" + line + "'", e);
+                }
+            }
+        }
+        if (list.isEmpty()) throw new IOException(file + ": no samples");
+        this.samples = Collections.unmodifiableList(list);
+        this.loop = loop;
+    }
+
+    /** Next recorded sample; after the last one either starts over or keeps returning NONE. */
+    @Override
+    public ForegroundSnapshot sample() {
+        if (next >= samples.size()) {
+            if (!loop) return ForegroundSnapshot.NONE;
+            next = 0;
+        }
+        return samples.get(next++);
+    }
+
+    public int size() {
+        return samples.size();
+    }
+
+    public boolean isExhausted() {
+        return !loop && next >= samples.size();
+    }
+
+    // -------------------- FILE FORMAT --------------------
+    static ForegroundSnapshot parse(String line) {
+        String[] f = line.split("\t", 4);
+        String exe = "-".equals(f[2]) ? null : f[2];
+        return new ForegroundSnapshot(Long.parseLong(f[0]), Integer.parseInt(f[1]), exe, f.length > 3 ? f[3] : "");
+    }
+
+    static String format(ForegroundSnapshot s) {
+        return s.hwnd + "\t" + s.pid + "\t" + (s.exe == null ? "-" : clean(s.exe)) + "\t" + clean(s.title);
+    }
+
+    private static String clean(String s) {
+        return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /** Wrap a probe so every sample it returns is also appended to file. */
+    public static ForegroundProbe recording(ForegroundProbe delegate, Path file) throws IOException {
+        BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return () -> {
+            ForegroundSnapshot s = delegate.sample();
+            try {
+                out.write(format(s));
+                out.newLine();
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return s;
+        };
+    }
+}
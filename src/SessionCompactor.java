@@ -0,0 +1,157 @@
+import models.ActivityLog;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.util.Pair;
+
+/**
+ * Offline counterpart of Sessionizer: applies the same A–B–A merge to rows already in Activity_Log.
+ * - Works on closed days of the hot DB only (archives are left as written)
+ * - Each day's old rows are replaced by merged ones and its Daily_Usage rows are rebuilt, in one transaction
+ * - Progress is kept in Settings after every day, so each day is compacted once
+ */
+public class SessionCompactor {
+
+    private static final Log log = Log.get("Compactor");
+
+    // Settings keys (shared with TrackingService so live and offline merging agree)
+    public static final String MERGE_GAP_KEY = "session_merge_gap_seconds";
+    public static final String MERGE_MODE_KEY = "session_merge_mode";
+    private static final String COMPACTED_THROUGH_KEY = "sessions_compacted_through"; // epoch day
+
+    public static int mergeGapSeconds() {
+        return SettingsStore.getInt(MERGE_GAP_KEY, Sessionizer.DEFAULT_MAX_GAP_SECONDS);
+    }
+
+    public static Sessionizer.Mode mergeMode() {
+        String v = SettingsStore.get(MERGE_MODE_KEY);
+        try {
+            return v == null ? Sessionizer.DEFAULT_MODE : Sessionizer.Mode.valueOf(v.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Sessionizer.DEFAULT_MODE;
+        }
+    }
+
+    /**
+     * Compact every day up to yesterday that has not been compacted yet.
+     * One transaction per day, and progress is saved after each, so a large backlog never holds the
+     * writer for long and an interrupted run resumes where it stopped.
+     */
+    public static void compactClosedDays() {
+        long yesterday = DatabaseHelper.toDay(LocalDate.now().minusDays(1));
+        long day = (long) SettingsStore.getInt(COMPACTED_THROUGH_KEY, Integer.MIN_VALUE) + 1;
+        if (day > yesterday) return;
+        int days = 0, before = 0, after = 0;
+        try {
+            Long next;
+            while ((next = nextDayWithRows(day, yesterday)) != null) {
+                LocalDate d = LocalDate.ofEpochDay(next);
+                Pair<Integer, Integer> result = compact(d, d, mergeGapSeconds(), mergeMode());
+                if (result == null) return;  // Retried from this day on the next run
+                SettingsStore.set(COMPACTED_THROUGH_KEY, String.valueOf(next));
+                days++;
+                before += result.getKey();
+                after += result.getValue();
+                day = next + 1;
+            }
+        } catch (SQLException e) {
+            log.error("Compaction stopped", e);
+            return;
+        }
+        SettingsStore.set(COMPACTED_THROUGH_KEY, String.valueOf(yesterday));
+        if (days > 0) log.info("Activity_Log: compacted {} days, {} rows → {}", days, before, after);
+    }
+
+    private static Long nextDayWithRows(long fromDay, long toDay) throws SQLException {
+        try (Connection conn = ConnectionManager.read();
+             PreparedStatement ps = conn.prepareStatement("SELECT MIN(day) FROM Activity_Log WHERE day BETWEEN ? AND ?")) {
+            ps.setLong(1, fromDay);
+            ps.setLong(2, toDay);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                long day = rs.getLong(1);
+                return rs.wasNull() ? null : day;
+            }
+        }
+    }
+
+    /**
+     * Merge sessions that started between from and to (inclusive).
+     * Returns (rows before, rows after), or null if the compaction failed.
+     */
+    public static Pair<Integer, Integer> compact(LocalDate from, LocalDate to, int maxGapSeconds, Sessionizer.Mode mode) {
+        try {
+            return ConnectionManager.withWriteRetry(conn -> {
+                conn.setAutoCommit(false);
+                try {
+                    List<Integer> logIds = new ArrayList<>();
+                    List<ActivityLog> merged = new ArrayList<>();
+                    Sessionizer sessionizer = new Sessionizer(maxGapSeconds, mode, s -> merged.add(toRow(s)));
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "SELECT log_id, app_id, site_id, start_time, end_time, duration_seconds FROM Activity_Log " +
+                                    "WHERE day BETWEEN ? AND ? AND start_time IS NOT NULL AND end_time IS NOT NULL " +
+                                    "AND (app_id IS NOT NULL OR site_id IS NOT NULL) ORDER BY start_epoch, log_id")) {
+                        ps.setLong(1, DatabaseHelper.toDay(from));
+                        ps.setLong(2, DatabaseHelper.toDay(to));
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                logIds.add(rs.getInt("log_id"));
+                                int siteId = rs.getInt("site_id");
+                                boolean website = !rs.wasNull();
+                                int appId = rs.getInt("app_id");
+                                Integer app = rs.wasNull() ? null : appId;
+                                sessionizer.accept(new Sessionizer.Session(toItem(website ? siteId : null, app), website, 0,
+                                        LocalDateTime.parse(rs.getString("start_time")),
+                                        LocalDateTime.parse(rs.getString("end_time")),
+                                        rs.getInt("duration_seconds")));
+                            }
+                        }
+                    }
+                    sessionizer.flush();
+                    if (merged.size() < logIds.size()) {
+                        try (PreparedStatement del = conn.prepareStatement("DELETE FROM Activity_Log WHERE log_id = ?")) {
+                            for (int id : logIds) {
+                                del.setInt(1, id);
+                                del.addBatch();
+                            }
+                            del.executeBatch();
+                        }
+                        DatabaseHelper.insertActivityRows(conn, merged);
+                        // ABSORB moves seconds between entities; rebuilding keeps the rollup exact either way
+                        DailyUsageRollup.rebuildDays(conn, DatabaseHelper.toDay(from), DatabaseHelper.toDay(to) + 1);
+                    }
+                    conn.commit();
+                    return new Pair<>(logIds.size(), Math.min(merged.size(), logIds.size()));
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            });
+        } catch (SQLException e) {
+            log.error("Compaction failed", e);
+            return null;
+        }
+    }
+
+    // Sessionizer item for a row: "site/app", either part empty when null. A site row keeps the app it was
+    // seen in (the browser), so only rows with both ids equal merge and both survive into the merged row
+    private static String toItem(Integer siteId, Integer appId) {
+        return (siteId == null ? "" : siteId) + "/" + (appId == null ? "" : appId);
+    }
+
+    private static ActivityLog toRow(Sessionizer.Session s) {
+        int slash = s.item.indexOf('/');
+        String site = s.item.substring(0, slash);
+        String app = s.item.substring(slash + 1);
+        return new ActivityLog(0, app.isEmpty() ? null : Integer.valueOf(app), site.isEmpty() ? null : Integer.valueOf(site),
+                s.start, s.end, s.seconds);
+    }
+}
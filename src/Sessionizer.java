@@ -0,0 +1,179 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Merges A–B–A flicker into one session before it is persisted.
+ * - Spans arrive closed and in order (one per foreground switch)
+ * - Interruptions whose total length is at most maxGapSeconds, followed by a return to
+ *   the same item, are folded into the surrounding session
+ * - Only closed, merged sessions reach the sink; the open one is held in memory until flush()
+ * Not thread-safe: feed it from one thread (the tracking thread or the compactor).
+ */
+public class Sessionizer {
+
+    public static final int DEFAULT_MAX_GAP_SECONDS = 30;
+    public static final Mode DEFAULT_MODE = Mode.SUB_SPANS;
+
+    public enum Mode {
+        /** Interruption time is credited to the surrounding session; no rows for the interruption. */
+        ABSORB,
+        /** The surrounding session keeps only its own seconds; interruptions become one row per item. */
+        SUB_SPANS
+    }
+
+    /** One foreground span or merged session. seconds can be less than end - start for merged sessions. */
+    public static final class Session {
+        public final String item;
+        public final boolean website;
+        public final int categoryHint;
+        public final LocalDateTime start;
+        public final LocalDateTime end;
+        public final int seconds;
+
+        public Session(String item, boolean website, int categoryHint,
+                       LocalDateTime start, LocalDateTime end, int seconds) {
+            this.item = item;
+            this.website = website;
+            this.categoryHint = categoryHint;
+            this.start = start;
+            this.end = end;
+            this.seconds = seconds;
+        }
+
+        boolean sameItem(Session other) {
+            return website == other.website && item.equals(other.item);
+        }
+
+        @Override
+        public String toString() {
+            return (website ? "site " : "app ") + item + " " + start + " → " + end + " (" + seconds + "s)";
+        }
+    }
+
+    private final int maxGapSeconds;
+    private final Mode mode;
+    private final Consumer<Session> sink;
+
+    // -------------------- STATE --------------------
+    private Session open;                                     // Session that may still absorb interruptions
+    private final List<Session> interruptions = new ArrayList<>();
+    private int interruptionSeconds;
+    private long spansIn;
+    private long sessionsOut;
+
+    public Sessionizer(int maxGapSeconds, Mode mode, Consumer<Session> sink) {
+        this.maxGapSeconds = maxGapSeconds;
+        this.mode = mode;
+        this.sink = sink;
+    }
+
+    /** Feed the next closed span. */
+    public void accept(Session span) {
+        spansIn++;
+        if (open == null) {
+            open = span;
+            return;
+        }
+        if (span.sameItem(open)) {
+            // A [short interruptions] A → one session
+            open = merge(open, span);
+            return;
+        }
+        if (span.seconds <= maxGapSeconds && interruptionSeconds + span.seconds <= maxGapSeconds) {
+            // Could still be a flicker: wait and see whether the user comes back
+            interruptions.add(span);
+            interruptionSeconds += span.seconds;
+            return;
+        }
+        // The user really moved on: close the open session
+        List<Session> rest = new ArrayList<>(interruptions);
+        rest.add(span);
+        emit(open);
+        clearInterruptions();
+        open = null;
+        for (Session s : coalesce(rest)) {
+            if (open != null) emit(open);
+            open = s;
+        }
+    }
+
+    /**
+     * Close the open session if the current (still running) item already rules out a return
+     * within the gap. Keeps memory bounded and rows timely while the user stays on one item.
+     */
+    public void expire(String currentItem, boolean currentIsWebsite, LocalDateTime currentStart, LocalDateTime now) {
+        if (open == null) return;
+        boolean sameAsOpen = open.website == currentIsWebsite && open.item.equals(currentItem);
+        if (sameAsOpen) return;
+        long running = Duration.between(currentStart, now).getSeconds();
+        if (interruptionSeconds + running > maxGapSeconds) flush();
+    }
+
+    /** Emit everything held in memory (the open session and any pending interruptions). */
+    public void flush() {
+        if (open == null) return;
+        emit(open);
+        open = null;
+        for (Session s : coalesce(interruptions)) emit(s);
+        clearInterruptions();
+    }
+
+    public String stats() {
+        return "Sessionizer{spansIn=" + spansIn + ", sessionsOut=" + sessionsOut +
+                ", holding=" + (open == null ? 0 : 1 + interruptions.size()) + "}";
+    }
+
+    // -------------------- INTERNALS --------------------
+    private Session merge(Session first, Session last) {
+        int seconds = first.seconds + last.seconds;
+        if (mode == Mode.ABSORB) {
+            seconds += interruptionSeconds;
+        } else {
+            // Interruptions are emitted now, one row per item covering all its flickers
+            for (Session s : groupByItem(interruptions)) emit(s);
+        }
+        clearInterruptions();
+        return new Session(first.item, first.website, first.categoryHint, first.start, last.end, seconds);
+    }
+
+    private static List<Session> groupByItem(List<Session> spans) {
+        Map<String, Session> byItem = new LinkedHashMap<>();
+        for (Session s : spans) {
+            String key = (s.website ? "s:" : "a:") + s.item;
+            Session prev = byItem.get(key);
+            byItem.put(key, prev == null ? s
+                    : new Session(prev.item, prev.website, prev.categoryHint, prev.start, s.end, prev.seconds + s.seconds));
+        }
+        return new ArrayList<>(byItem.values());
+    }
+
+    // Join neighbours that are the same item (e.g. a short "b" directly followed by a long "b")
+    private static List<Session> coalesce(List<Session> spans) {
+        List<Session> out = new ArrayList<>();
+        for (Session s : spans) {
+            Session last = out.isEmpty() ? null : out.get(out.size() - 1);
+            if (last != null && last.sameItem(s)) {
+                out.set(out.size() - 1,
+                        new Session(last.item, last.website, last.categoryHint, last.start, s.end, last.seconds + s.seconds));
+            } else {
+                out.add(s);
+            }
+        }
+        return out;
+    }
+
+    private void clearInterruptions() {
+        interruptions.clear();
+        interruptionSeconds = 0;
+    }
+
+    private void emit(Session s) {
+        sessionsOut++;
+        sink.accept(s);
+    }
+}
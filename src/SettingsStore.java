@@ -0,0 +1,149 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Typed, cached view of the Settings table.
+ * - Loaded once; getters never touch the DB
+ * - Setters write through to the DB and notify listeners when the value actually changed
+ * - Changes written by another process are picked up via DataVersionWatcher
+ * - set() and reload() are serialized, so a reload that read the table before a local set() committed
+ *   cannot apply its stale value after that set()
+ */
+public class SettingsStore {
+
+    private static final Log log = Log.get("Settings");
+
+    // -------------------- KNOWN KEYS --------------------
+    public static final String FOCUS_MODE_ENABLED = "focus_mode_enabled";
+
+    /** Notified on the thread that made (or detected) the change. */
+    public interface Listener {
+        void onSettingChanged(String key, String newValue);
+    }
+
+    private static final Map<String, String> values = new ConcurrentHashMap<>();
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static volatile boolean loaded = false;
+
+    static {
+        DataVersionWatcher.addListener(SettingsStore::reload);
+    }
+
+    // -------------------- GETTERS --------------------
+    public static String get(String key) {
+        ensureLoaded();
+        return values.get(key);
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String v = get(key);
+        return v == null ? defaultValue : "true".equals(v);
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String v = get(key);
+        if (v == null) return defaultValue;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean isFocusModeEnabled() {
+        return getBoolean(FOCUS_MODE_ENABLED, false);
+    }
+
+    // -------------------- SETTERS --------------------
+    public static synchronized void set(String key, String value) {
+        ensureLoaded();
+        try {
+            ConnectionManager.withWriteRetry(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT OR REPLACE INTO Settings(key, value) VALUES(?, ?)")) {
+                    ps.setString(1, key);
+                    ps.setString(2, value);
+                    return ps.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            log.error("Saving setting {} failed", key, e);
+            return;
+        }
+        apply(key, value);
+    }
+
+    public static void setBoolean(String key, boolean value) {
+        set(key, value ? "true" : "false");
+    }
+
+    public static void setFocusModeEnabled(boolean enabled) {
+        setBoolean(FOCUS_MODE_ENABLED, enabled);
+    }
+
+    // -------------------- LISTENERS --------------------
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // -------------------- LOADING --------------------
+    private static void ensureLoaded() {
+        if (loaded) return;
+        synchronized (SettingsStore.class) {
+            if (loaded) return;
+            Map<String, String> fresh = readAll();
+            if (fresh == null) return;  // Table not there yet; try again on the next call
+            values.putAll(fresh);
+            loaded = true;
+        }
+    }
+
+    /** Re-read the table and notify listeners of every key whose value differs. */
+    public static synchronized void reload() {
+        Map<String, String> fresh = readAll();
+        if (fresh == null) return;
+        loaded = true;
+        for (Map.Entry<String, String> e : fresh.entrySet()) apply(e.getKey(), e.getValue());
+        for (String key : values.keySet()) {
+            if (!fresh.containsKey(key)) apply(key, null);
+        }
+    }
+
+    private static Map<String, String> readAll() {
+        Map<String, String> fresh = new HashMap<>();
+        try (Connection conn = ConnectionManager.read();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT key, value FROM Settings")) {
+            while (rs.next()) fresh.put(rs.getString("key"), rs.getString("value"));
+            return fresh;
+        } catch (SQLException e) {
+            log.error("Loading settings failed", e);
+            return null;
+        }
+    }
+
+    private static void apply(String key, String value) {
+        String old = value == null ? values.remove(key) : values.put(key, value);
+        if (Objects.equals(old, value)) return;
+        for (Listener listener : listeners) {
+            try {
+                listener.onSettingChanged(key, value);
+            } catch (Throwable t) {
+                log.error("Settings listener failed", t);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.Random;
+
+/**
+ * Generates foreground samples without touching the OS.
+ * - On each sample the foreground switches with probability switchRate (0..1)
+ * - Switches go to a random entry of a fixed mix of IDEs, tools and browser tabs
+ * - Seeded, so a run with the same seed and rate produces the same sequence
+ */
+public class SyntheticForegroundProbe implements ForegroundProbe {
+
+    // exe, window title
+    private static final String[][] WINDOWS = {
+            {"idea64.exe", "ActivityTracker – TrackingService.java"},
+            {"Code.exe", "README.md - Visual Studio Code"},
+            {"chrome.exe", "Pull requests · GitHub - Google Chrome"},
+            {"chrome.exe", "YouTube - Google Chrome"},
+            {"chrome.exe", "Stack Overflow - Where Developers Learn - Google Chrome"},
+            {"firefox.exe", "Instagram — Mozilla Firefox"},
+            {"msedge.exe", "LeetCode - The World's Leading Online Programming Learning Platform - Microsoft Edge"},
+            {"Spotify.exe", "Spotify Premium"},
+            {"steam.exe", "Steam"},
+            {"explorer.exe", "File Explorer"},
+    };
+
+    private final Random random;
+    private final double switchRate;
+    private int current;
+
+    public SyntheticForegroundProbe(double switchRate, long seed) {
+        if (switchRate < 0 || switchRate > 1) throw new IllegalArgumentException("switchRate must be in [0, 1]");
+        this.switchRate = switchRate;
+        this.random = new Random(seed);
+        this.current = random.nextInt(WINDOWS.length);
+    }
+
+    @Override
+    public ForegroundSnapshot sample() {
+        if (random.nextDouble() < switchRate) {
+            int next = random.nextInt(WINDOWS.length - 1);
+            current = next >= current ? next + 1 : next; // Always a different window
+        }
+        String[] w = WINDOWS[current];
+        return new ForegroundSnapshot(0x10000L + current, 1000 + current, w[0], w[1]);
+    }
+}
@@ -0,0 +1,371 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Today's seconds per app, site and category, held in memory for the dashboard, the Apps/Websites pages,
+ * Insights and the break checker.
+ * - Read from Daily_Usage once (start(), or the first current()); after that the tracking engine feeds it
+ *   through METER: closed spans go into the counters and the running span is kept beside them
+ * - Readers get an immutable Snapshot, built on demand and reused until a counter changes
+ * - Counters reset when the engine's clock crosses midnight (spans crossing it only count today's part)
+ * - Re-categorizing moves an entity's seconds to its new category; commits from another process re-read
+ *   the entities, or everything when no engine feeds this process
+ * - categoryOf() answers with the stored category, for rules that match on it (the classifier's hint only
+ *   applies when an entity is first inserted)
+ * Counts the spans the engine closes, i.e. the same per-item seconds Daily_Usage gets in SUB_SPANS mode.
+ */
+public class TodayUsage {
+
+    private static final Log log = Log.get("TodayUsage");
+
+    /** Engine stage that feeds the counters; pass it to TrackingEngine.setUsageMeter. */
+    public static final TrackingEngine.UsageMeter METER = new TrackingEngine.UsageMeter() {
+        @Override
+        public void spanClosed(Sessionizer.Session span) {
+            TodayUsage.spanClosed(span);
+        }
+
+        @Override
+        public void running(TrackingEngine.Classification current, LocalDateTime start, LocalDateTime now) {
+            TodayUsage.running(current, start, now);
+        }
+    };
+
+    // -------------------- STATE (guarded by the class lock) --------------------
+    private static final Map<String, Counter> apps = new HashMap<>();           // Name as stored in Applications
+    private static final Map<String, Counter> sites = new HashMap<>();          // Url as stored in Websites
+    private static final Map<Integer, long[]> categorySeconds = new HashMap<>(); // category_id (0 = none) → closed seconds
+    private static final Set<Integer> productiveIds = new HashSet<>();
+    private static LocalDate day;
+    private static LocalDateTime dayStart;
+    private static LocalDateTime nextDayStart;
+
+    // Running span: not in the counters until it closes
+    private static TrackingEngine.Classification openItem;
+    private static Counter open;
+    private static LocalDateTime openStart;
+    private static LocalDateTime openNow;
+
+    private static volatile long version;
+    private static volatile long categoriesVersion;
+    private static volatile boolean fed;        // An engine in this process calls METER
+    private static volatile Snapshot published;
+
+    static {
+        DataVersionWatcher.addListener(TodayUsage::externalChange);
+    }
+
+    // -------------------- READERS --------------------
+    /** Today's totals, including the running span as of the engine's last tick. */
+    public static Snapshot current() {
+        Snapshot snap = published;
+        if (snap != null && snap.version == version && (fed || snap.day.equals(LocalDate.now()))) return snap;
+        return build();
+    }
+
+    /** (Re)load today's totals for the engine's day. Call before the engine starts feeding METER. */
+    public static void start(LocalDateTime now) {
+        Loaded loaded = query(now.toLocalDate());
+        synchronized (TodayUsage.class) {
+            fed = true;  // From here on the engine's clock decides what "today" is
+            apply(loaded, true);
+        }
+    }
+
+    // -------------------- ENGINE CALLBACKS --------------------
+    private static synchronized void spanClosed(Sessionizer.Session span) {
+        fed = true;
+        if (day == null) apply(query(span.end.toLocalDate()), true);
+        if (!span.end.isBefore(nextDayStart)) startDay(span.end.toLocalDate());
+        // The engine only closes the running span
+        openItem = null;
+        open = null;
+        version++;
+        if (!span.end.isAfter(dayStart)) return;  // Entirely before today
+        long seconds = span.start.isBefore(dayStart)
+                ? Math.min(span.seconds, ChronoUnit.SECONDS.between(dayStart, span.end))
+                : span.seconds;
+        Counter c = counter(span.item, span.website, span.categoryHint);
+        c.seconds += seconds;
+        categorySeconds.computeIfAbsent(c.categoryId, k -> new long[1])[0] += seconds;
+    }
+
+    private static synchronized void running(TrackingEngine.Classification current, LocalDateTime start, LocalDateTime now) {
+        fed = true;
+        if (day == null) apply(query(now.toLocalDate()), true);
+        if (!now.isBefore(nextDayStart)) startDay(now.toLocalDate());
+        if (current != openItem) {
+            openItem = current;
+            open = counter(current.item, current.website, current.categoryHint);
+        }
+        openStart = start;
+        openNow = now;
+        version++;
+    }
+
+    // -------------------- CATEGORY LOOKUP --------------------
+    /**
+     * Stored category of an app or site (0 = none). Counters already carry it; an entity not counted today
+     * is read from its table, and one not stored yet gets categoryHint, which the persister will insert.
+     */
+    public static int categoryOf(String item, boolean website, int categoryHint) {
+        String name = website ? DatabaseHelper.normalizeSiteUrl(item) : DatabaseHelper.normalizeAppName(item);
+        synchronized (TodayUsage.class) {
+            Counter c = (website ? sites : apps).get(name);
+            if (c != null) return c.categoryId;
+        }
+        return storedCategory(name, website, categoryHint);
+    }
+
+    /** Changes whenever a stored category may have changed, so callers can keep categoryOf() results. */
+    public static long categoriesVersion() {
+        return categoriesVersion;
+    }
+
+    private static int storedCategory(String name, boolean website, int categoryHint) {
+        try (Connection conn = ConnectionManager.read();
+             PreparedStatement ps = conn.prepareStatement(website
+                     ? "SELECT category_id FROM Websites WHERE url = ?"
+                     : "SELECT category_id FROM Applications WHERE name = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return categoryHint;
+                int categoryId = rs.getInt(1);
+                return rs.wasNull() ? 0 : categoryId;
+            }
+        } catch (SQLException e) {
+            log.error("Reading the category of {} failed", name, e);
+            return categoryHint;
+        }
+    }
+
+    // -------------------- CATEGORY CHANGES --------------------
+    /** An entity was re-categorized (DatabaseHelper calls this after the commit). */
+    public static synchronized void categoryChanged(boolean website, int entityId, Integer categoryId) {
+        categoriesVersion++;  // Also covers entities without a counter, which categoryOf() reads from the table
+        for (Counter c : (website ? sites : apps).values()) {
+            if (c.id == 0) resolveId(c, website);
+            if (c.id == entityId) {
+                setCategory(c, categoryId != null ? categoryId : 0);
+                version++;
+                return;
+            }
+        }
+    }
+
+    private static void setCategory(Counter c, int categoryId) {
+        if (c.categoryId == categoryId) return;
+        if (c.seconds > 0) {
+            long[] old = categorySeconds.get(c.categoryId);
+            if (old != null) old[0] -= c.seconds;
+            categorySeconds.computeIfAbsent(categoryId, k -> new long[1])[0] += c.seconds;
+        }
+        c.categoryId = categoryId;
+    }
+
+    // -------------------- COUNTERS --------------------
+    // Keyed the way DatabaseHelper stores the entity, so counters line up with Daily_Usage rows
+    private static Counter counter(String item, boolean website, int categoryHint) {
+        String name = website ? DatabaseHelper.normalizeSiteUrl(item) : DatabaseHelper.normalizeAppName(item);
+        Map<String, Counter> map = website ? sites : apps;
+        Counter c = map.get(name);
+        if (c == null) {
+            // First time seen today: its stored category, or the hint the persister will insert it with
+            c = new Counter(0, name, storedCategory(name, website, categoryHint));
+            map.put(name, c);
+        }
+        return c;
+    }
+
+    // Inserted by the persister since it was first seen; EntityCache already has its id
+    private static void resolveId(Counter c, boolean website) {
+        Integer id = website ? EntityCache.siteId(c.name) : EntityCache.appId(c.name);
+        if (id != null) c.id = id;
+    }
+
+    private static void startDay(LocalDate newDay) {
+        if (day != null) log.debug("New day {}: resetting {} usage counters", newDay, apps.size() + sites.size());
+        day = newDay;
+        dayStart = newDay.atStartOfDay();
+        nextDayStart = dayStart.plusDays(1);
+        for (Counter c : apps.values()) c.seconds = 0;
+        for (Counter c : sites.values()) c.seconds = 0;
+        categorySeconds.clear();
+        version++;
+    }
+
+    // -------------------- SNAPSHOT --------------------
+    private static synchronized Snapshot build() {
+        // Without an engine the DB is the only source; reload once the day has changed
+        if (day == null || (!fed && !day.equals(LocalDate.now()))) apply(query(LocalDate.now()), true);
+        Snapshot snap = published;
+        if (snap != null && snap.version == version) return snap;
+
+        int openSeconds = 0;
+        if (open != null) {
+            LocalDateTime from = openStart.isBefore(dayStart) ? dayStart : openStart;
+            openSeconds = (int) Math.max(0, ChronoUnit.SECONDS.between(from, openNow));
+        }
+        Map<Integer, Integer> categories = new HashMap<>();
+        for (Map.Entry<Integer, long[]> e : categorySeconds.entrySet()) {
+            if (e.getValue()[0] != 0) categories.put(e.getKey(), (int) e.getValue()[0]);
+        }
+        if (openSeconds > 0) categories.merge(open.categoryId, openSeconds, Integer::sum);
+        int productive = 0;
+        int total = 0;
+        for (Map.Entry<Integer, Integer> e : categories.entrySet()) {
+            total += e.getValue();
+            if (productiveIds.contains(e.getKey())) productive += e.getValue();
+        }
+        snap = new Snapshot(version, day, totals(apps, false, openSeconds), totals(sites, true, openSeconds),
+                categories, productive, total);
+        published = snap;
+        return snap;
+    }
+
+    private static List<UsageAggregator.EntityTotal> totals(Map<String, Counter> map, boolean website, int openSeconds) {
+        List<UsageAggregator.EntityTotal> result = new ArrayList<>(map.size());
+        for (Counter c : map.values()) {
+            if (c.id == 0) resolveId(c, website);
+            long seconds = c == open ? c.seconds + openSeconds : c.seconds;
+            result.add(new UsageAggregator.EntityTotal(c.id, c.name, c.categoryId, (int) seconds));
+        }
+        // Id order like UsageAggregator; entities not stored yet go last
+        result.sort(Comparator.comparingLong(t -> t.id == 0 ? Long.MAX_VALUE : t.id));
+        return Collections.unmodifiableList(result);
+    }
+
+    /** Immutable view of today's totals. Entity lists hold every known app/site, in id order. */
+    public static final class Snapshot {
+        public final long version;
+        public final LocalDate day;
+        public final List<UsageAggregator.EntityTotal> apps;
+        public final List<UsageAggregator.EntityTotal> sites;
+        public final int productiveSeconds;
+        public final int totalSeconds;
+        private final Map<Integer, Integer> categories;
+
+        Snapshot(long version, LocalDate day, List<UsageAggregator.EntityTotal> apps,
+                 List<UsageAggregator.EntityTotal> sites, Map<Integer, Integer> categories,
+                 int productiveSeconds, int totalSeconds) {
+            this.version = version;
+            this.day = day;
+            this.apps = apps;
+            this.sites = sites;
+            this.categories = categories;
+            this.productiveSeconds = productiveSeconds;
+            this.totalSeconds = totalSeconds;
+        }
+
+        /** Seconds today in one category (0 = uncategorized). */
+        public int categorySeconds(int categoryId) {
+            return categories.getOrDefault(categoryId, 0);
+        }
+    }
+
+    // -------------------- LOADING --------------------
+    // A commit from another process: category edits, or (without our own engine) new usage
+    private static void externalChange() {
+        LocalDate loadedDay;
+        synchronized (TodayUsage.class) {
+            loadedDay = day;
+        }
+        if (loadedDay == null) return;  // Nothing loaded yet; the first reader loads
+        boolean reloadAll = !fed;
+        Loaded loaded = query(reloadAll ? LocalDate.now() : loadedDay);
+        synchronized (TodayUsage.class) {
+            apply(loaded, reloadAll);
+        }
+    }
+
+    private static Loaded query(LocalDate d) {
+        Loaded loaded = new Loaded(d, UsageAggregator.appTotals(d, d), UsageAggregator.siteTotals(d, d));
+        try (Connection conn = ConnectionManager.read();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT category_id FROM Categories WHERE LOWER(name) = 'productive'")) {
+            while (rs.next()) loaded.productiveIds.add(rs.getInt(1));
+        } catch (SQLException e) {
+            log.error("Loading the productive categories failed", e);
+        }
+        return loaded;
+    }
+
+    // withSeconds: replace everything; otherwise only pick up new entities, ids and categories
+    private static void apply(Loaded loaded, boolean withSeconds) {
+        if (withSeconds) {
+            apps.clear();
+            sites.clear();
+            openItem = null;
+            open = null;
+            day = null;
+            startDay(loaded.day);
+        } else if (!loaded.day.equals(day)) {
+            return;  // The day rolled over meanwhile; the next change catches up
+        }
+        merge(apps, loaded.apps, withSeconds);
+        merge(sites, loaded.sites, withSeconds);
+        productiveIds.clear();
+        productiveIds.addAll(loaded.productiveIds);
+        version++;
+        categoriesVersion++;
+        if (withSeconds) log.debug("Loaded {} apps and {} sites for {}", apps.size(), sites.size(), day);
+    }
+
+    private static void merge(Map<String, Counter> map, List<UsageAggregator.EntityTotal> totals, boolean withSeconds) {
+        for (UsageAggregator.EntityTotal t : totals) {
+            Counter c = map.get(t.name);
+            if (c == null) {
+                c = new Counter(t.id, t.name, t.categoryId);
+                map.put(t.name, c);
+            } else {
+                c.id = t.id;
+                setCategory(c, t.categoryId);
+            }
+            if (withSeconds && t.seconds > 0) {
+                c.seconds += t.seconds;
+                categorySeconds.computeIfAbsent(c.categoryId, k -> new long[1])[0] += t.seconds;
+            }
+        }
+    }
+
+    // Mutable per-entity cell, so a span adds to a long field instead of boxing a new value
+    private static final class Counter {
+        int id;             // 0 until the entity is stored
+        final String name;
+        int categoryId;
+        long seconds;
+
+        Counter(int id, String name, int categoryId) {
+            this.id = id;
+            this.name = name;
+            this.categoryId = categoryId;
+        }
+    }
+
+    private static final class Loaded {
+        final LocalDate day;
+        final List<UsageAggregator.EntityTotal> apps;
+        final List<UsageAggregator.EntityTotal> sites;
+        final Set<Integer> productiveIds = new HashSet<>();
+
+        Loaded(LocalDate day, List<UsageAggregator.EntityTotal> apps, List<UsageAggregator.EntityTotal> sites) {
+            this.day = day;
+            this.apps = apps;
+            this.sites = sites;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Drives the full TrackingService pipeline (probe → mapping → debounce → sessionizer → writer → SQLite)
+ * as fast as it will go, with a clock that advances by the delay the adaptive scheduler asks for.
+ * Runs on any OS. Writes to a new database in a temp directory, or to -Dtracker.db=<path> if given.
+ *
+ *   java TrackingBench [samples] [switchRate]     synthetic input (defaults 100000, 0.05)
+ *   java TrackingBench --replay file.tsv          recorded input, see ReplayForegroundProbe
+ */
+public class TrackingBench {
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("database: " + ConnectionManager.useScratchDatabase("tracking-bench"));
+        ForegroundProbe probe;
+        int samples;
+        if (args.length >= 2 && "--replay".equals(args[0])) {
+            ReplayForegroundProbe replay = new ReplayForegroundProbe(Path.of(args[1]), false);
+            probe = replay;
+            samples = replay.size();
+        } else {
+            samples = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+            double switchRate = args.length > 1 ? Double.parseDouble(args[1]) : 0.05;
+            probe = new SyntheticForegroundProbe(switchRate, 42);
+        }
+
+        SteppingClock clock = new SteppingClock(Instant.now());
+        Instant start = clock.instant();
+        TrackingService tracker = new TrackingService(probe, clock);
+        tracker.prepare();
+
+        // The pipeline logs every poll to stdout; keep that out of the measurement
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long t0 = System.nanoTime();
+        try {
+            for (int i = 0; i < samples; i++) {
+                clock.step(Duration.ofMillis(tracker.pollOnce()));
+            }
+            tracker.stop();
+        } finally {
+            System.setOut(out);
+        }
+        long nanos = System.nanoTime() - t0;
+
+        System.out.printf("%d samples in %.1f ms → %.0f samples/s%n",
+                samples, nanos / 1e6, samples / (nanos / 1e9));
+        System.out.printf("simulated %.1f h of tracking%n",
+                Duration.between(start, clock.instant()).toMillis() / 3_600_000.0);
+        System.out.println(tracker.engine().stats());
+        System.out.println(tracker.classifierStats());
+        System.out.println(ActivityLogWriter.stats());
+        DataVersionWatcher.stop();
+        ClassificationRules.stopWatching();
+        FocusSchedule.stop();
+        ActivityLogWriter.shutdown();
+        ConnectionManager.shutdown();
+        Log.shutdown();
+    }
+
+    /** Clock that only moves when told to. */
+    static final class SteppingClock extends Clock {
+        private Instant now;
+
+        SteppingClock(Instant start) {
+            this.now = start;
+        }
+
+        void step(Duration step) {
+            now = now.plus(step);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * The one tracking pipeline: probe → classify → focus-enforce → debounce/sessionize → usage-meter → persist.
+ * - Every stage is an interface and can be swapped while running (setters below)
+ * - Every stage is timed separately; see stats()
+ * - One scheduler thread drives tick(); the next delay comes from an AdaptivePollInterval,
+ *   capped by the enforcer while it needs low latency
+ * - The enforcer sees every raw sample, so alerts don't wait for debounce
+ * - Durations are measured on a monotonic clock; the wall clock is read only when a session starts
+ * - Only one engine may run per process
+ * TrackingService and ActivityMonitor are thin wrappers that pick the stages.
+ */
+public class TrackingEngine {
+
+    private static final Log log = Log.get("TrackingEngine");
+
+    // -------------------- CONFIGURABLE SETTINGS --------------------
+    private static final int MIN_LOG_SECONDS = 2; // Ignore durations shorter than this
+    private static final int DEBOUNCE_COUNT = 2;  // Require N stable readings to accept switch
+    static final long DEFAULT_MIN_POLL_MS = 500;   // Confirm a possible switch quickly
+    static final long DEFAULT_MAX_POLL_MS = 8000;  // Back off to this while nothing changes
+
+    // -------------------- STAGES --------------------
+    /** Turns a foreground sample into the item we track (app label or website domain). */
+    public interface Classifier {
+        Classification classify(ForegroundSnapshot fg);
+    }
+
+    /** Reacts to every classified sample before debounce, e.g. Focus Mode warnings. */
+    public interface Enforcer {
+        Enforcer NONE = (sample, changed, nowNanos) -> { };
+
+        /** changed: the item differs from the previous sample. nowNanos is on the engine's monotonic clock. */
+        void check(Classification sample, boolean changed, long nowNanos);
+
+        /** Upper bound for the next poll delay; the adaptive interval is used as is by default. */
+        default long maxPollMillis() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /** Live usage of the stable item: each span as it closes, and the running span on every settled tick. */
+    public interface UsageMeter {
+        UsageMeter NONE = new UsageMeter() {
+            @Override
+            public void spanClosed(Sessionizer.Session span) { }
+
+            @Override
+            public void running(Classification current, LocalDateTime start, LocalDateTime now) { }
+        };
+
+        /** A span of at least MIN_LOG_SECONDS ended (before Sessionizer merging). */
+        void spanClosed(Sessionizer.Session span);
+
+        void running(Classification current, LocalDateTime start, LocalDateTime now);
+
+        /** Feeds every meter, in the given order. */
+        static UsageMeter all(UsageMeter... meters) {
+            UsageMeter[] copy = meters.clone();
+            return new UsageMeter() {
+                @Override
+                public void spanClosed(Sessionizer.Session span) {
+                    for (UsageMeter m : copy) m.spanClosed(span);
+                }
+
+                @Override
+                public void running(Classification current, LocalDateTime start, LocalDateTime now) {
+                    for (UsageMeter m : copy) m.running(current, start, now);
+                }
+            };
+        }
+    }
+
+    /** Stores a closed, merged session. */
+    public interface Persister {
+        void persist(Sessionizer.Session session);
+    }
+
+    /**
+     * Result of the classify stage. categoryHint is used when the item is first inserted.
+     * host is the full host a website item was reduced from ("mail.google.com" for "google.com");
+     * blocks are matched against it so a blocked subdomain still counts. It equals item otherwise.
+     */
+    public static final class Classification {
+        public final String item;
+        public final boolean website;
+        public final int categoryHint;
+        public final String host;
+
+        public Classification(String item, boolean website, int categoryHint) {
+            this(item, website, categoryHint, item);
+        }
+
+        public Classification(String item, boolean website, int categoryHint, String host) {
+            this.item = item;
+            this.website = website;
+            this.categoryHint = categoryHint;
+            this.host = host;
+        }
+
+        boolean sameItem(Classification other) {
+            return other != null && website == other.website && item.equals(other.item);
+        }
+    }
+
+    private static final AtomicReference<TrackingEngine> ACTIVE = new AtomicReference<>();
+
+    private volatile ForegroundProbe probe;
+    private volatile Classifier classifier;
+    private volatile Enforcer enforcer;
+    private volatile Persister persister;
+    private volatile UsageMeter meter = UsageMeter.NONE;
+    private final Clock clock;               // Wall time, read when a session starts
+    private final LongSupplier nanoTime;     // Monotonic time for durations
+    private final Sessionizer sessionizer;
+    private ScheduledExecutorService scheduler;
+    private AdaptivePollInterval interval;
+
+    // -------------------- STATE (tracking thread only) --------------------
+    private Classification current;   // Stable item since startTime
+    private LocalDateTime startTime;
+    private long startNanos;
+    private Classification pending;    // Candidate for the next switch
+    private Classification lastSample; // Previous raw sample, for the enforcer
+    private int pendingCount;
+    private final List<Sessionizer.Session> closed = new ArrayList<>();
+
+    // -------------------- TIMING --------------------
+    private final StageTimer probeTimer = new StageTimer("probe");
+    private final StageTimer classifyTimer = new StageTimer("classify");
+    private final StageTimer sessionizeTimer = new StageTimer("sessionize");
+    private final StageTimer enforceTimer = new StageTimer("enforce");
+    private final StageTimer persistTimer = new StageTimer("persist");
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTimeSupported = THREADS.isCurrentThreadCpuTimeSupported();
+    private long wakeups;
+    private long cpuNanos;
+    private long sleptMillis;
+
+    public TrackingEngine(ForegroundProbe probe, Classifier classifier, Enforcer enforcer,
+                          Persister persister, Clock clock) {
+        this(probe, classifier, enforcer, persister, clock, System::nanoTime);
+    }
+
+    /** nanoTime must be monotonic; simulations pass one derived from their own clock. */
+    public TrackingEngine(ForegroundProbe probe, Classifier classifier, Enforcer enforcer,
+                          Persister persister, Clock clock, LongSupplier nanoTime) {
+        this.probe = probe;
+        this.classifier = classifier;
+        this.enforcer = enforcer != null ? enforcer : Enforcer.NONE;
+        this.persister = persister;
+        this.clock = clock;
+        this.nanoTime = nanoTime;
+        this.sessionizer = new Sessionizer(SessionCompactor.mergeGapSeconds(), SessionCompactor.mergeMode(), closed::add);
+    }
+
+    /** The engine currently driven by a scheduler in this process, or null. */
+    public static TrackingEngine active() {
+        return ACTIVE.get();
+    }
+
+    // -------------------- LIFECYCLE --------------------
+    public synchronized void start(AdaptivePollInterval interval) {
+        if (!ACTIVE.compareAndSet(null, this)) {
+            throw new IllegalStateException("A TrackingEngine is already running in this process");
+        }
+        this.interval = interval;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "tracking-thread");
+            t.setDaemon(true);
+            return t;
+        });
+        // The next wake-up is always pending; stop() must not wait for it to come due
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        scheduler = executor;
+        scheduler.execute(this::loop);
+    }
+
+    // One wake-up: poll, then schedule the next one after the adaptive delay
+    private void loop() {
+        long delay = tick();
+        synchronized (this) {
+            if (scheduler == null || scheduler.isShutdown()) return;
+            scheduler.schedule(this::loop, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Stop polling and write out everything still held in memory. */
+    public void stop() {
+        ScheduledExecutorService s;
+        synchronized (this) {
+            s = scheduler;
+            scheduler = null;
+        }
+        if (s != null) {
+            s.shutdown();
+            try {
+                if (!s.awaitTermination(3, TimeUnit.SECONDS))
+                    s.shutdownNow();
+            } catch (InterruptedException e) {
+                s.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        ACTIVE.compareAndSet(this, null);
+        log.info("Stopped: {}", stats());
+    }
+
+    // -------------------- ONE POLL --------------------
+    /** Run every stage once. Returns the delay in ms before the next poll should happen. */
+    public synchronized long tick() {
+        long cpu0 = cpuTimeSupported ? THREADS.getCurrentThreadCpuTime() : 0;
+        boolean unsettled = true;
+        try {
+            long t0 = System.nanoTime();
+            ForegroundSnapshot fg = probe.sample();
+            long t1 = System.nanoTime();
+            probeTimer.record(t1 - t0);
+
+            Classification c = classifier.classify(fg);
+            long t2 = System.nanoTime();
+            classifyTimer.record(t2 - t1);
+            log.debug("Polling: item='{}' (website? {})", c.item, c.website);
+
+            // Enforce on the raw sample: a blocked item is flagged on the first poll that sees it
+            long nowNanos = nanoTime.getAsLong();
+            boolean changed = c != lastSample && !c.sameItem(lastSample);
+            lastSample = c;
+            enforcer.check(c, changed, nowNanos);
+            long t3 = System.nanoTime();
+            enforceTimer.record(t3 - t2);
+
+            // Debounce: require N identical readings before accepting a switch
+            if (!c.sameItem(pending)) {
+                pending = c;
+                pendingCount = 1;
+            } else {
+                pendingCount++;
+            }
+            if (pendingCount < DEBOUNCE_COUNT) {
+                // Still unstable — ignore this cycle (and come back quickly to confirm)
+                sessionizeTimer.record(System.nanoTime() - t3);
+                return nextDelay(true, cpu0);
+            }
+            boolean switched = !c.sameItem(current);
+            if (switched) {
+                closeCurrent(nowNanos);
+                current = c;
+                startTime = LocalDateTime.now(clock);
+                startNanos = nowNanos;
+                pending = null;
+                pendingCount = 0;
+            }
+            unsettled = switched;
+            LocalDateTime now = startTime.plusNanos(nowNanos - startNanos);
+            // Release the held session once a return within the merge gap is no longer possible
+            sessionizer.expire(current.item, current.website, startTime, now);
+            meter.running(current, startTime, now);
+            long t4 = System.nanoTime();
+            sessionizeTimer.record(t4 - t3);
+
+            persistClosed();
+            persistTimer.record(System.nanoTime() - t4);
+        } catch (Throwable t) {
+            // Never allow the scheduler thread to die
+            log.error("Error in tick", t);
+        }
+        return nextDelay(unsettled, cpu0);
+    }
+
+    private long nextDelay(boolean unsettled, long cpu0) {
+        wakeups++;
+        if (cpuTimeSupported) cpuNanos += THREADS.getCurrentThreadCpuTime() - cpu0;
+        AdaptivePollInterval policy = interval;
+        if (policy == null) policy = interval = new AdaptivePollInterval(DEFAULT_MIN_POLL_MS, DEFAULT_MAX_POLL_MS);
+        long delay = Math.min(policy.next(unsettled), enforcer.maxPollMillis());
+        sleptMillis += delay;
+        return delay;
+    }
+
+    private synchronized void flush() {
+        closeCurrent(nanoTime.getAsLong());
+        current = null;
+        sessionizer.flush();
+        persistClosed();
+        log.debug("{}", sessionizer.stats());
+        // Make sure every queued session is committed before we report "stopped"
+        ActivityLogWriter.flush();
+    }
+
+    private void closeCurrent(long endNanos) {
+        if (current == null || startTime == null) return;
+        long elapsed = endNanos - startNanos;
+        int duration = (int) (elapsed / 1_000_000_000L);
+        LocalDateTime end = startTime.plusNanos(elapsed);
+        if (duration >= MIN_LOG_SECONDS) {
+            Sessionizer.Session span = new Sessionizer.Session(current.item, current.website, current.categoryHint,
+                    startTime, end, duration);
+            meter.spanClosed(span);
+            sessionizer.accept(span);
+        }
+    }
+
+    private void persistClosed() {
+        if (closed.isEmpty()) return;
+        Persister p = persister;
+        for (Sessionizer.Session s : closed) p.persist(s);
+        closed.clear();
+    }
+
+    // -------------------- SWAPPABLE STAGES --------------------
+    public void setProbe(ForegroundProbe probe) { this.probe = probe; }
+    public void setClassifier(Classifier classifier) { this.classifier = classifier; }
+    public void setEnforcer(Enforcer enforcer) { this.enforcer = enforcer != null ? enforcer : Enforcer.NONE; }
+    public void setPersister(Persister persister) { this.persister = persister; }
+    public void setUsageMeter(UsageMeter meter) { this.meter = meter != null ? meter : UsageMeter.NONE; }
+
+    // -------------------- DEFAULT PERSIST STAGE --------------------
+    /** Resolve the entity id (inserting it with the category hint) and queue the session for the DB. */
+    public static void persistToDb(Sessionizer.Session s) {
+        if (s.website) {
+            int siteId = DatabaseHelper.insertWebsiteIfNotExists(s.item, s.categoryHint);
+            if (siteId != -1) {
+                ActivityLogWriter.enqueue(null, siteId, s.start, s.end, s.seconds);
+                log.debug("Logged website {} → {}s", s.item, s.seconds);
+            }
+        } else {
+            int appId = DatabaseHelper.insertApplicationIfNotExists(s.item, s.categoryHint);
+            if (appId != -1) {
+                ActivityLogWriter.enqueue(appId, null, s.start, s.end, s.seconds);
+                log.debug("Logged app {} → {}s", s.item, s.seconds);
+            }
+        }
+    }
+
+    // -------------------- STATS --------------------
+    public String stats() {
+        long n = Math.max(1, wakeups);
+        String cpu = cpuTimeSupported
+                ? String.format("cpu=%.1fms (%.1fµs/wakeup)", cpuNanos / 1e6, cpuNanos / 1000.0 / n)
+                : "cpu=n/a";
+        return "wakeups=" + wakeups + ", avgDelay=" + (sleptMillis / n) + "ms, " + cpu
+                + ", stages{" + probeTimer + ", " + classifyTimer + ", " + enforceTimer + ", "
+                + sessionizeTimer + ", " + persistTimer + "}";
+    }
+
+    /** Count, mean and max of one stage's wall time. */
+    static final class StageTimer {
+        private final String name;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        StageTimer(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) maxNanos = nanos;
+        }
+
+        // Read from other threads without locking: numbers may be a tick behind
+        @Override
+        public String toString() {
+            double avgUs = count == 0 ? 0 : totalNanos / 1000.0 / count;
+            return String.format("%s: n=%d avg=%.1fµs max=%.1fµs", name, count, avgUs, maxNanos / 1000.0);
+        }
+    }
+}
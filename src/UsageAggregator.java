@@ -0,0 +1,87 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-entity usage totals for a date range.
+ * Each call is one grouped query: the Daily_Usage rollup is aggregated once and joined
+ * to Applications/Websites, instead of one SUM query per entity.
+ */
+public class UsageAggregator {
+
+    private static final Log log = Log.get("DB");
+
+    /** Kind of entity a total belongs to. */
+    public enum Kind {
+        APP("Applications", "app_id", "name"),
+        SITE("Websites", "site_id", "url");
+
+        final String table;
+        final String idColumn;
+        final String nameColumn;
+
+        Kind(String table, String idColumn, String nameColumn) {
+            this.table = table;
+            this.idColumn = idColumn;
+            this.nameColumn = nameColumn;
+        }
+    }
+
+    /** One row of a totals result. categoryId is 0 when the entity has no category. */
+    public static final class EntityTotal {
+        public final int id;
+        public final String name;
+        public final int categoryId;
+        public final int seconds;
+
+        EntityTotal(int id, String name, int categoryId, int seconds) {
+            this.id = id;
+            this.name = name;
+            this.categoryId = categoryId;
+            this.seconds = seconds;
+        }
+    }
+
+    public static List<EntityTotal> appTotals(LocalDate from, LocalDate to) {
+        return totals(Kind.APP, from, to);
+    }
+
+    public static List<EntityTotal> siteTotals(LocalDate from, LocalDate to) {
+        return totals(Kind.SITE, from, to);
+    }
+
+    /**
+     * Totals for every entity of the given kind over [from, to] (inclusive, local dates).
+     * Entities without activity in the range are returned with 0 seconds, in id order.
+     */
+    public static List<EntityTotal> totals(Kind kind, LocalDate from, LocalDate to) {
+        List<EntityTotal> result = new ArrayList<>();
+        String sql =
+                "SELECT E." + kind.idColumn + " AS id, E." + kind.nameColumn + " AS name, E.category_id, " +
+                "COALESCE(T.total, 0) AS total " +
+                "FROM " + kind.table + " E " +
+                "LEFT JOIN (SELECT " + kind.idColumn + ", SUM(seconds) AS total " +
+                "           FROM Daily_Usage " +
+                "           WHERE day BETWEEN ? AND ? AND " + kind.idColumn + " <> 0 " +
+                "           GROUP BY " + kind.idColumn + ") T ON T." + kind.idColumn + " = E." + kind.idColumn + " " +
+                "ORDER BY E." + kind.idColumn;
+        try (Connection conn = ConnectionManager.read();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, DatabaseHelper.toDay(from));
+            ps.setLong(2, DatabaseHelper.toDay(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new EntityTotal(rs.getInt("id"), rs.getString("name"),
+                            rs.getInt("category_id"), rs.getInt("total")));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Usage totals query failed", e);
+        }
+        return result;
+    }
+}
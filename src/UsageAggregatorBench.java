@@ -0,0 +1,159 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares UsageAggregator's grouped totals with the per-entity queries it replaced.
+ * - Fills a new database in a temp directory with N apps, N sites and the given number of
+ *   Activity_Log rows spread over the last DAYS days (Daily_Usage is rebuilt from them)
+ * - The grouped queries run for all entities; the legacy path runs one SUM per entity, so it is timed on
+ *   a sample and extrapolated to all of them
+ * - The sampled entities must get the same seconds from both paths
+ * Pass -Dtracker.db=<path> to keep the filled database between runs; it is reused when big enough.
+ *
+ *   java UsageAggregatorBench [entities] [rows] [legacySample]     (default 10000 1000000 50)
+ */
+public class UsageAggregatorBench {
+
+    private static final int DAYS = 30;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int sample = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        LocalDate today = LocalDate.now();
+        System.out.println("database: " + ConnectionManager.useScratchDatabase("usage-aggregator-bench"));
+
+        DatabaseHelper.enableWALMode();
+        DatabaseHelper.createTables();
+        fill(entities, rows, today);
+
+        // Grouped: one statement per kind, best of a few rounds
+        long best = Long.MAX_VALUE;
+        List<UsageAggregator.EntityTotal> apps = null;
+        List<UsageAggregator.EntityTotal> sites = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            apps = UsageAggregator.appTotals(today, today);
+            sites = UsageAggregator.siteTotals(today, today);
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        System.out.printf("grouped:  %d apps + %d sites in %.1f ms%n", apps.size(), sites.size(), best / 1e6);
+
+        // Legacy: one SUM over Activity_Log per entity, on evenly spaced samples
+        int mismatches = 0;
+        long legacyNanos = 0;
+        int step = Math.max(1, apps.size() / Math.max(1, sample));
+        int sampled = 0;
+        try (Connection conn = ConnectionManager.read()) {
+            for (int i = 0; i < apps.size() && sampled < sample; i += step, sampled++) {
+                UsageAggregator.EntityTotal t = apps.get(i);
+                long t0 = System.nanoTime();
+                int legacy = Legacy.appSecondsOn(conn, t.id, today);
+                legacyNanos += System.nanoTime() - t0;
+                if (legacy != t.seconds) {
+                    mismatches++;
+                    System.out.println("differs: app " + t.id + " legacy=" + legacy + " grouped=" + t.seconds);
+                }
+            }
+        }
+        double perEntityMs = legacyNanos / 1e6 / Math.max(1, sampled);
+        int all = apps.size() + sites.size();
+        System.out.printf("legacy:   %.1f ms per entity over %d samples → ~%.1f s for all %d entities%n",
+                perEntityMs, sampled, perEntityMs * all / 1000, all);
+        System.out.println(mismatches + " of " + sampled + " sampled entities differ");
+
+        ActivityLogWriter.shutdown();
+        ConnectionManager.shutdown();
+        Log.shutdown();
+    }
+
+    // -------------------- INPUT --------------------
+    // Skipped when the database already holds at least this much, so repeated runs measure the same data
+    private static void fill(int entities, int rows, LocalDate today) throws SQLException {
+        try (Connection conn = ConnectionManager.read();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT (SELECT COUNT(*) FROM Applications), (SELECT COUNT(*) FROM Activity_Log)")) {
+            if (rs.next() && rs.getInt(1) >= entities && rs.getInt(2) >= rows) {
+                System.out.println("Reusing existing data");
+                return;
+            }
+        }
+        long t0 = System.nanoTime();
+        Random random = new Random(42);
+        ConnectionManager.withWriteRetry(conn -> {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement app = conn.prepareStatement("INSERT OR IGNORE INTO Applications(name, category_id) VALUES(?, ?)");
+                     PreparedStatement site = conn.prepareStatement("INSERT OR IGNORE INTO Websites(url, category_id) VALUES(?, ?)")) {
+                    for (int i = 0; i < entities; i++) {
+                        app.setString(1, "bench-app-" + i);
+                        app.setInt(2, i % 3);
+                        app.addBatch();
+                        site.setString(1, "http://bench-site-" + i + ".com");
+                        site.setInt(2, i % 3);
+                        site.addBatch();
+                    }
+                    app.executeBatch();
+                    site.executeBatch();
+                }
+                try (PreparedStatement log = conn.prepareStatement(
+                        "INSERT INTO Activity_Log(app_id, site_id, start_time, end_time, duration_seconds, start_epoch, day) " +
+                                "VALUES(?, ?, ?, ?, ?, ?, ?)")) {
+                    for (int i = 0; i < rows; i++) {
+                        boolean website = random.nextBoolean();
+                        int id = 1 + random.nextInt(entities);
+                        LocalDateTime start = today.minusDays(random.nextInt(DAYS)).atStartOfDay()
+                                .plusSeconds(random.nextInt(23 * 3600));
+                        int duration = 2 + random.nextInt(600);
+                        if (website) {
+                            log.setNull(1, java.sql.Types.INTEGER);
+                            log.setInt(2, id);
+                        } else {
+                            log.setInt(1, id);
+                            log.setNull(2, java.sql.Types.INTEGER);
+                        }
+                        log.setString(3, start.toString());
+                        log.setString(4, start.plusSeconds(duration).toString());
+                        log.setInt(5, duration);
+                        log.setLong(6, DatabaseHelper.toEpochSecond(start));
+                        log.setLong(7, DatabaseHelper.toDay(start.toLocalDate()));
+                        log.addBatch();
+                        if (i % 10_000 == 9_999) log.executeBatch();
+                    }
+                    log.executeBatch();
+                }
+                DailyUsageRollup.rebuild(conn);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            return null;
+        });
+        System.out.printf("Filled %d apps, %d sites, %d log rows in %.1f s%n", entities, entities, rows, (System.nanoTime() - t0) / 1e9);
+    }
+
+    // -------------------- REFERENCE: per-entity query before UsageAggregator --------------------
+    private static final class Legacy {
+        static int appSecondsOn(Connection conn, int appId, LocalDate day) throws SQLException {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT SUM(duration_seconds) AS total FROM Activity_Log " +
+                            "WHERE app_id=? AND date(start_time)=?")) {
+                ps.setInt(1, appId);
+                ps.setString(2, day.toString());
+                ResultSet rs = ps.executeQuery();
+                return rs.next() ? rs.getInt("total") : 0;
+            }
+        }
+    }
+}
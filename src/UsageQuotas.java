@@ -0,0 +1,188 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Daily usage limits from the UsageQuotas table ("youtube.com 30 min/day", "Steam 1 h on weekdays").
+ * - Rules are held in an immutable Snapshot: app names in a hash map, sites matched by host or parent domain
+ * - QuotaMeter counts usage in memory and publishes the quotas that ran out today through setExceeded();
+ *   FocusEnforcer treats their items as blocked until the day ends
+ * - DatabaseHelper's quota methods call reload(); edits from another process arrive via DataVersionWatcher
+ */
+public class UsageQuotas {
+
+    private static final Log log = Log.get("UsageQuotas");
+
+    private static final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private static final AtomicReference<Set<Quota>> exceeded = new AtomicReference<>(Collections.emptySet());
+    private static final AtomicLong versions = new AtomicLong();
+
+    static {
+        DataVersionWatcher.addListener(UsageQuotas::reload);
+    }
+
+    /** The current rules; loads them on first use. */
+    public static Snapshot current() {
+        Snapshot snap = current.get();
+        if (snap == null) snap = reload();
+        return snap;
+    }
+
+    /** Re-read the quota table and publish a new snapshot. Keeps the old one on error or when nothing changed. */
+    public static synchronized Snapshot reload() {
+        List<Quota> quotas = new ArrayList<>();
+        try (Connection conn = ConnectionManager.read();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT quota_id, target_kind, target, limit_seconds, days, enabled FROM UsageQuotas ORDER BY quota_id")) {
+            while (rs.next()) {
+                try {
+                    quotas.add(new Quota(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4),
+                            rs.getInt(5), rs.getBoolean(6)));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping usage quota {}: {}", rs.getInt(1), e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Reload failed, keeping the previous quotas", e);
+            Snapshot old = current.get();
+            if (old != null) return old;
+        }
+        Snapshot old = current.get();
+        if (old != null && old.quotas.equals(quotas)) return old;
+        Snapshot snap = new Snapshot(versions.incrementAndGet(), quotas);
+        current.set(snap);
+        log.debug("Loaded {} usage quotas", quotas.size());
+        return snap;
+    }
+
+    // -------------------- EXCEEDED SET --------------------
+    /** Quotas used up today (empty after the day boundary). */
+    public static Set<Quota> exceeded() {
+        return exceeded.get();
+    }
+
+    /** The exceeded quota that blocks this item, or null. */
+    public static Quota blocking(String item, boolean website) {
+        Set<Quota> over = exceeded.get();
+        if (over.isEmpty()) return null;
+        Quota q = current().resolve(item, website);
+        return q != null && over.contains(q) ? q : null;
+    }
+
+    static void setExceeded(Set<Quota> quotas) {
+        exceeded.set(Collections.unmodifiableSet(new HashSet<>(quotas)));
+    }
+
+    // -------------------- QUOTA --------------------
+    /** One row of UsageQuotas. days uses the FocusSchedule day mask (bit 0 = Monday). */
+    public static final class Quota {
+        public static final String APP = "app";
+        public static final String SITE = "site";
+
+        public final int id;
+        public final String kind;
+        public final String target;
+        public final int limitSeconds;
+        public final int days;
+        public final boolean enabled;
+
+        public Quota(int id, String kind, String target, int limitSeconds, int days, boolean enabled) {
+            if (!APP.equals(kind) && !SITE.equals(kind)) throw new IllegalArgumentException("unknown target kind '" + kind + "'");
+            if (target == null || target.trim().isEmpty()) throw new IllegalArgumentException("empty target");
+            if (limitSeconds <= 0) throw new IllegalArgumentException("limit must be positive");
+            if ((days & FocusSchedule.ALL_DAYS) == 0) throw new IllegalArgumentException("no days selected");
+            this.id = id;
+            this.kind = kind;
+            this.target = target.trim();
+            this.limitSeconds = limitSeconds;
+            this.days = days & FocusSchedule.ALL_DAYS;
+            this.enabled = enabled;
+        }
+
+        public boolean website() {
+            return SITE.equals(kind);
+        }
+
+        /** True if the quota counts on this day (1 = Monday .. 7 = Sunday). */
+        public boolean appliesOn(int dayOfWeek) {
+            return enabled && (days & (1 << (dayOfWeek - 1))) != 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Quota)) return false;
+            Quota q = (Quota) o;
+            return id == q.id && limitSeconds == q.limitSeconds && days == q.days && enabled == q.enabled
+                    && kind.equals(q.kind) && target.equals(q.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, kind, target, limitSeconds, days, enabled);
+        }
+
+        @Override
+        public String toString() {
+            return target + " " + formatLimit(limitSeconds) + "/day " + FocusSchedule.formatDays(days);
+        }
+    }
+
+    // -------------------- SNAPSHOT --------------------
+    /** Immutable rule set with item → quota lookups. */
+    public static final class Snapshot {
+        public final long version;
+        public final List<Quota> quotas;
+        private final Map<String, Quota> apps = new HashMap<>();    // Lower-cased app name
+        private final Map<String, Quota> sites = new HashMap<>();   // Host without "www."
+
+        Snapshot(long version, List<Quota> quotas) {
+            this.version = version;
+            this.quotas = Collections.unmodifiableList(quotas);
+            // Earlier rows win when two quotas name the same target
+            for (Quota q : quotas) {
+                if (q.website()) sites.putIfAbsent(Blocklist.hostOf(q.target.toLowerCase(Locale.ROOT)), q);
+                else apps.putIfAbsent(q.target.toLowerCase(Locale.ROOT), q);
+            }
+        }
+
+        public boolean isEmpty() {
+            return quotas.isEmpty();
+        }
+
+        /** Quota for an app name, or for a host or its closest parent domain. Null if none. */
+        public Quota resolve(String item, boolean website) {
+            if (item == null || quotas.isEmpty()) return null;
+            if (!website) return apps.isEmpty() ? null : apps.get(item.toLowerCase(Locale.ROOT));
+            if (sites.isEmpty()) return null;
+            String host = Blocklist.hostOf(item.toLowerCase(Locale.ROOT));
+            while (true) {
+                Quota q = sites.get(host);
+                if (q != null) return q;
+                int dot = host.indexOf('.');
+                if (dot < 0) return null;
+                host = host.substring(dot + 1);
+            }
+        }
+    }
+
+    // -------------------- FORMATTING --------------------
+    /** "30m", "1h", "1h 30m". */
+    public static String formatLimit(int seconds) {
+        int minutes = seconds / 60;
+        if (minutes < 60) return minutes + "m";
+        return minutes % 60 == 0 ? (minutes / 60) + "h" : (minutes / 60) + "h " + (minutes % 60) + "m";
+    }
+}
@@ -1,4 +1,7 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,7 +38,30 @@ public class WebsiteTracker {
     };
 
     // A small regex to capture domains when present like "site.com - Google Chrome"
-    private static final Pattern DOMAIN_PATTERN = Pattern.compile("([\\w.-]+\\.[a-z]{2,6})", Pattern.CASE_INSENSITIVE);
+    // (any TLD length; candidates whose TLD is not on the public-suffix list are skipped)
+    private static final Pattern DOMAIN_PATTERN = Pattern.compile("([\\w.-]+\\.[a-z]{2,63})\\b", Pattern.CASE_INSENSITIVE);
+
+    // Setting: labels kept in front of the public suffix (1 = eTLD+1, "mail.google.com" → "google.com";
+    // 2 keeps "mail.google.com"; 0 or less keeps the whole host)
+    public static final String DOMAIN_DEPTH_KEY = "domain_labels_below_suffix";
+    private static final int DEFAULT_DOMAIN_DEPTH = 1;
+
+    // Both tables compiled once; longest match wins, so table order no longer matters
+    private static final KeywordMatcher<Boolean> SUFFIXES = KeywordMatcher.suffixes(Arrays.asList(BROWSER_SUFFIXES));
+    private static final KeywordMatcher<String> KEYWORDS = new KeywordMatcher<>(toMap(KEYWORD_MAP));
+
+    // -------------------- TITLE MEMO --------------------
+    // A handful of titles repeat for hours; remember the answer (including "no domain") per title
+    private static final int MEMO_SIZE = 512;
+    private static final String NO_DOMAIN = "";
+    private static final Map<String, String> MEMO = new LinkedHashMap<>(MEMO_SIZE * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MEMO_SIZE;
+        }
+    };
+    private static long memoHits;
+    private static long memoMisses;
 
     /**
      * Try to extract a domain (site) from a window title.
@@ -43,46 +69,83 @@ public class WebsiteTracker {
      */
     public static String extractDomainFromTitle(String title) {
         if (title == null) return null;
-        String t = title.trim().toLowerCase(Locale.ROOT);
-
-        // 1) Remove common browser suffixes
-        for (String suffix : BROWSER_SUFFIXES) {
-            if (t.endsWith(suffix)) {
-                t = t.substring(0, t.length() - suffix.length()).trim();
-                break;
+        String cached;
+        synchronized (MEMO) {
+            cached = MEMO.get(title);
+            if (cached != null) memoHits++;
+            else memoMisses++;
+        }
+        if (cached == null) {
+            String domain = extractDomainUncached(title);
+            cached = domain != null ? domain : NO_DOMAIN;
+            synchronized (MEMO) {
+                MEMO.put(title, cached);
             }
         }
+        return cached.isEmpty() ? null : cached;
+    }
+
+    /** The extraction itself, without the memo (benchmarks compare both). */
+    static String extractDomainUncached(String title) {
+        String t = title.trim().toLowerCase(Locale.ROOT);
+
+        // 1) Remove the browser suffix (longest one that matches)
+        int suffix = SUFFIXES.endsWithLength(t, 0, t.length());
+        if (suffix > 0) t = t.substring(0, t.length() - suffix).trim();
 
         // 2) If the remaining title contains a raw domain, return it
         Matcher m = DOMAIN_PATTERN.matcher(t);
-        if (m.find()) {
+        PublicSuffixList psl = PublicSuffixList.bundled();
+        while (m.find()) {
             String domain = m.group(1).toLowerCase(Locale.ROOT);
+            if (!psl.hasKnownTld(domain)) continue; // "notes.txt", "Main.java"
             // normalize www.
             if (domain.startsWith("www.")) domain = domain.substring(4);
             return domain;
         }
 
-        // 3) Keyword mapping (title often contains site name)
-        for (String[] kv : KEYWORD_MAP) {
-            String keyword = kv[0];
-            String domain = kv[1];
-            if (t.contains(keyword)) return domain;
+        // 3) Keyword mapping (title often contains site name); "youtube music" beats "youtube"
+        return KEYWORDS.longest(t);
+    }
+
+    public static String memoStats() {
+        synchronized (MEMO) {
+            return "titleMemo{size=" + MEMO.size() + ", hits=" + memoHits + ", misses=" + memoMisses + "}";
         }
+    }
 
-        // 4) If title is of format "User - Inbox (10) - Gmail" or similar, keyword mapping may help
-        return null;
+    private static Map<String, String> toMap(String[][] pairs) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (String[] kv : pairs) map.put(kv[0], kv[1]);
+        return map;
     }
 
     /**
-     * Normalize a raw domain into a canonical format (remove trailing slashes etc).
+     * Normalize a raw domain into a canonical format: no scheme, path or port, reduced to the
+     * public suffix plus DOMAIN_DEPTH_KEY labels ("news.bbc.co.uk" → "bbc.co.uk").
+     * Applies to KEYWORD_MAP domains too ("mail.google.com" → "google.com" at depth 1); the full host
+     * stays available through normalizeHost for blocklist matching.
      */
     public static String normalizeDomain(String domain) {
+        domain = normalizeHost(domain);
+        if (domain == null || domain.isEmpty()) return domain;
+        int depth = SettingsStore.getInt(DOMAIN_DEPTH_KEY, DEFAULT_DOMAIN_DEPTH);
+        if (depth <= 0) return domain;
+        return PublicSuffixList.bundled().registrableDomain(domain, depth);
+    }
+
+    /** The full host of a raw domain or URL: lower-cased, without scheme, path, port or "www.". */
+    public static String normalizeHost(String domain) {
         if (domain == null) return null;
         domain = domain.trim().toLowerCase(Locale.ROOT);
         if (domain.startsWith("http://")) domain = domain.substring(7);
         if (domain.startsWith("https://")) domain = domain.substring(8);
+        int slash = domain.indexOf('/');
+        if (slash >= 0) domain = domain.substring(0, slash);
+        int colon = domain.indexOf(':');
+        if (colon >= 0) domain = domain.substring(0, colon);
+        if (domain.endsWith(".")) domain = domain.substring(0, domain.length() - 1);
         if (domain.startsWith("www.")) domain = domain.substring(4);
-        if (domain.endsWith("/")) domain = domain.substring(0, domain.length() - 1);
         return domain;
     }
 }
@@ -4,10 +4,6 @@ import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.ComboBoxTableCell;
 import javafx.scene.layout.VBox;
-import javafx.util.Pair;
-
-import java.util.List;
-import java.util.Map;
 
 public class WebsitesPage extends VBox {
     private final TableView<SiteRow> table = new TableView<>();
@@ -32,15 +28,7 @@ public class WebsitesPage extends VBox {
             int newCat = "Productive".equals(newVal) ? 1 : ("Distracting".equals(newVal) ? 2 : 0);
             row.setCategoryLabel(newVal);
             // persist change - update Websites.category_id
-            try {
-                String sql = "UPDATE Websites SET category_id = ? WHERE site_id = ?";
-                try (var conn = DatabaseHelper.getConnection();
-                     var ps = conn.prepareStatement(sql)) {
-                    if (newCat > 0) ps.setInt(1, newCat); else ps.setNull(1, java.sql.Types.INTEGER);
-                    ps.setInt(2, row.getSiteId());
-                    ps.executeUpdate();
-                }
-            } catch (Exception ex) { ex.printStackTrace(); }
+            DatabaseHelper.updateWebsiteCategory(row.getSiteId(), newCat > 0 ? newCat : null);
         });
 
         table.getColumns().addAll(urlCol, secondsCol, categoryCol);
@@ -52,23 +40,9 @@ public class WebsitesPage extends VBox {
 
     public void refresh() {
         data.clear();
-        List<Map.Entry<Integer, Pair<String,Integer>>> rows = DatabaseHelper.querySitesWithTodaySeconds();
-        for (Map.Entry<Integer, Pair<String,Integer>> e : rows) {
-            int id = e.getKey();
-            String url = e.getValue().getKey();
-            int seconds = e.getValue().getValue();
-            int catId = -1;
-            try {
-                String q = "SELECT category_id FROM Websites WHERE site_id = ?";
-                try (var conn = DatabaseHelper.getConnection();
-                     var ps = conn.prepareStatement(q)) {
-                    ps.setInt(1, id);
-                    var rs = ps.executeQuery();
-                    if (rs.next()) catId = rs.getInt("category_id");
-                }
-            } catch (Exception ex) { /* ignore */ }
-            String label = (catId == 1) ? "Productive" : (catId == 2) ? "Distracting" : "Unknown";
-            data.add(new SiteRow(id, url, seconds, label));
+        for (UsageAggregator.EntityTotal t : TodayUsage.current().sites) {
+            String label = (t.categoryId == 1) ? "Productive" : (t.categoryId == 2) ? "Distracting" : "Unknown";
+            data.add(new SiteRow(t.id, t.name, t.seconds, label));
         }
         table.setItems(data);
     }
@@ -0,0 +1,36 @@
+/**
+ * Classifier used by TrackingService: app label and category from exe/title via ClassificationRules,
+ * website domain from the title when the app is a browser.
+ */
+public class WindowClassifier implements TrackingEngine.Classifier {
+
+    private static final int DEFAULT_APP_CATEGORY = 1;  // Productive
+    private static final int DEFAULT_SITE_CATEGORY = 2; // Distracting
+
+    @Override
+    public TrackingEngine.Classification classify(ForegroundSnapshot fg) {
+        ClassificationRules.Snapshot rules = ClassificationRules.current();
+        ClassificationRules.Match app = rules.resolveApp(fg.exe, fg.title);
+        String appName = app != null && app.appName != null ? app.appName : "Other";
+        // If browser, try to extract domain name
+        if (isBrowser(appName)) {
+            String host = WebsiteTracker.normalizeHost(WebsiteTracker.extractDomainFromTitle(fg.title));
+            if (host != null && !host.isEmpty()) {
+                ClassificationRules.Match site = rules.resolveSite(host);
+                int category = site != null && site.category > 0 ? site.category : DEFAULT_SITE_CATEGORY;
+                return new TrackingEngine.Classification(WebsiteTracker.normalizeDomain(host), true, category, host);
+            }
+        }
+        int category = app != null && app.category > 0 ? app.category : DEFAULT_APP_CATEGORY;
+        return new TrackingEngine.Classification(appName, false, category);
+    }
+
+    // -------------------- HELPER: Detect Browsers --------------------
+    static boolean isBrowser(String name) {
+        if (name == null) return false;
+        name = name.toLowerCase();
+        return name.contains("chrome") || name.contains("edge") ||
+                name.contains("firefox") || name.contains("brave") ||
+                name.contains("opera") || name.contains("chromium");
+    }
+}